@@ -0,0 +1,49 @@
+package com.lee.springdatajpa.benchmark;
+
+import com.lee.springdatajpa.SpringDataJpaApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 벤치마크용 스프링 컨텍스트. application.yml 설정을 그대로 쓰되
+ * DB는 embedded H2(메모리)로 바꾸고 SQL 로그, p6spy, statement 검사는 끈다.
+ * 측정 중에 백그라운드 샘플 데이터(MemberSeeder)가 들어가지 않도록 seed도 끈다. (벤치마크마다 직접 넣는다)
+ */
+public final class BenchmarkContext {
+
+    private static final String[] DEFAULT_PROPERTIES = {
+            "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+            "spring.jpa.properties.hibernate.format_sql=false",
+            "spring.jpa.properties.hibernate.generate_statistics=false",
+            "decorator.datasource.enabled=false",
+            "sql.inspection.enabled=false",
+            "seed.enabled=false",
+            "logging.level.root=warn",
+            "logging.level.org.hibernate.SQL=warn",
+            "spring.main.banner-mode=off"
+    };
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        return start(WebApplicationType.NONE, new Class<?>[0], properties);
+    }
+
+    // 웹 서버까지 띄우거나(부하 테스트), 벤치마크 전용 설정 클래스를 추가할 때
+    public static ConfigurableApplicationContext start(WebApplicationType webApplicationType, Class<?>[] sources,
+                                                       String... properties) {
+        List<String> all = new ArrayList<>(Arrays.asList(DEFAULT_PROPERTIES));
+        all.addAll(Arrays.asList(properties));
+        return new SpringApplicationBuilder(SpringDataJpaApplication.class)
+                .sources(sources)
+                .web(webApplicationType)
+                .properties(all.toArray(new String[0]))
+                .run();
+    }
+}
@@ -0,0 +1,78 @@
+package com.lee.springdatajpa.benchmark;
+
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.repository.MemberRepository;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 영속성 컨텍스트에 엔티티가 많을 때 flush 시간 (바이트코드 향상 전/후).
+ * ./gradlew jmh -Pjmh.includes=FlushBenchmark
+ * ./gradlew jmh -Pjmh.includes=FlushBenchmark -Phibernate.enhance=false
+ * <p>
+ * managed 개수만큼 Member를 한 트랜잭션에 올려두고, 매번 dirty 개수만 나이를 바꾼 뒤 flush 한다.
+ * 향상하지 않으면 flush 마다 managed 개수 x 필드 수 만큼 스냅샷을 비교하고, 향상하면 바뀐 엔티티만 본다.
+ * 트랜잭션은 끝날 때 롤백한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FlushBenchmark {
+
+    @Param({"100000"})
+    int managed;
+
+    @Param({"0", "100"})
+    int dirty;
+
+    ConfigurableApplicationContext context;
+    EntityManager em;
+    List<Member> members;
+    int round;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(
+                // 2차 캐시에 10만건을 넣지 않는다.
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        List<Member> seed = new ArrayList<>();
+        for (int i = 0; i < managed; i++) {
+            seed.add(new Member("flush" + i, i));
+        }
+        context.getBean(MemberRepository.class).saveAllBatched(seed, 1000);
+
+        em = context.getBean(EntityManagerFactory.class).createEntityManager();
+        em.getTransaction().begin();
+        members = em.createQuery("select m from Member m", Member.class).getResultList();
+        System.out.println("enhanced=" + SelfDirtinessTracker.class.isAssignableFrom(Member.class)
+                + ", managed=" + members.size());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        em.getTransaction().rollback();
+        em.close();
+        context.close();
+    }
+
+    @Benchmark
+    public void flush() {
+        round++;
+        for (int i = 0; i < dirty; i++) {
+            Member member = members.get((round * dirty + i) % members.size());
+            member.changeAge(member.getAge() + 1);
+        }
+        em.flush();
+    }
+}
@@ -0,0 +1,93 @@
+package com.lee.springdatajpa.benchmark;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DB 응답을 기다리는 요청이 많을 때 동기(/members) vs 비동기(/members/async) 처리량.
+ * ./gradlew jmh -Pjmh.includes=MemberAsyncLoadBenchmark
+ * <p>
+ * - Tomcat 요청 스레드는 8개로 줄이고 (코어 수가 적은 인스턴스), 커넥션 풀은 32개
+ * - 쿼리마다 50ms 네트워크 지연을 흉내낸다. (p6spy 리스너에서 sleep)
+ * - 64개 클라이언트 스레드가 계속 요청한다.
+ * 동기 모드는 요청 스레드 8개가 DB를 기다리느라 묶이고, 비동기 모드는 요청 스레드를 반납하고
+ * repositoryExecutor(풀 크기 32)에서 기다린다. virtual 은 JDK 21+ 에서만 가상 스레드로 동작한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(64)
+public class MemberAsyncLoadBenchmark {
+
+    private static final long QUERY_LATENCY_MILLIS = 50;
+
+    @Param({"sync", "async", "virtual"})
+    String mode;
+
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    URI uri;
+
+    // @Configuration을 붙이면 컴포넌트 스캔에 걸려서 다른 벤치마크 컨텍스트에도 등록되므로 source로만 넘긴다.
+    static class DatabaseLatency {
+        @Bean
+        SimpleJdbcEventListener databaseLatency() {
+            return new SimpleJdbcEventListener() {
+                @Override
+                public void onBeforeAnyExecute(StatementInformation statementInformation) {
+                    try {
+                        Thread.sleep(QUERY_LATENCY_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(WebApplicationType.SERVLET, new Class<?>[]{DatabaseLatency.class},
+                "server.port=0",
+                "server.tomcat.threads.max=8",
+                "spring.datasource.hikari.maximum-pool-size=32",
+                "decorator.datasource.enabled=true",
+                // count 쿼리는 캐시되므로 요청마다 content 쿼리 1번씩만 DB를 기다린다.
+                "member.page-count-cache.ttl=1h",
+                "async.repository.executor=" + ("virtual".equals(mode) ? "virtual" : "platform"),
+                "async.repository.queue-capacity=1000");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        uri = URI.create("http://localhost:" + port + ("sync".equals(mode) ? "/members" : "/members/async") + "?size=5");
+        client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int list() throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("status " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,119 @@
+package com.lee.springdatajpa.benchmark;
+
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.repository.MemberRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인기 username 몇 개에 쓰기가 몰릴 때 낙관적 락(@Version + 재시도) vs 비관적 락(select ... for update) 처리량.
+ * ./gradlew jmh -Pjmh.includes=MemberContentionBenchmark
+ * <p>
+ * - writers : 8, 32, 128 (동시 쓰기 스레드)
+ * - hotUsernames : 쓰기가 몰리는 username 개수 (1이면 한 행에 전부 몰린다)
+ * - succeeded / failed : 재시도를 다 쓰거나 락 대기 시간이 지나서 실패한 수정은 failed 로 따로 센다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberContentionBenchmark {
+
+    @Param({"1", "10"})
+    int hotUsernames;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 128 writer가 한 행의 락을 기다려도 타임아웃(기본 1초)으로 실패하지 않게 늘린다.
+        context = BenchmarkContext.start(
+                "spring.datasource.url=jdbc:h2:mem:contention;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        memberRepository = context.getBean(MemberRepository.class);
+
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < hotUsernames; i++) {
+            members.add(new Member("hot" + i, 0));
+        }
+        memberRepository.saveAll(members);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcome {
+        public long succeeded;
+        public long failed;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void optimistic8(Outcome outcome) {
+        optimistic(outcome);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void optimistic32(Outcome outcome) {
+        optimistic(outcome);
+    }
+
+    @Benchmark
+    @Threads(128)
+    public void optimistic128(Outcome outcome) {
+        optimistic(outcome);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void pessimistic8(Outcome outcome) {
+        pessimistic(outcome);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void pessimistic32(Outcome outcome) {
+        pessimistic(outcome);
+    }
+
+    @Benchmark
+    @Threads(128)
+    public void pessimistic128(Outcome outcome) {
+        pessimistic(outcome);
+    }
+
+    private void optimistic(Outcome outcome) {
+        try {
+            memberRepository.addAgeOptimistic(hotUsername(), 1);
+            outcome.succeeded++;
+        } catch (ConcurrencyFailureException e) {
+            outcome.failed++;
+        }
+    }
+
+    private void pessimistic(Outcome outcome) {
+        try {
+            memberRepository.addAgePessimistic(hotUsername(), 1);
+            outcome.succeeded++;
+        } catch (ConcurrencyFailureException e) {
+            outcome.failed++;
+        }
+    }
+
+    private String hotUsername() {
+        return "hot" + ThreadLocalRandom.current().nextInt(hotUsernames);
+    }
+}
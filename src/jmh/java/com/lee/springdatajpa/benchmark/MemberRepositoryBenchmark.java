@@ -0,0 +1,127 @@
+package com.lee.springdatajpa.benchmark;
+
+import com.lee.springdatajpa.dto.MemberDto;
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.entity.Team;
+import com.lee.springdatajpa.repository.MemberJpaRepository;
+import com.lee.springdatajpa.repository.MemberRepository;
+import com.lee.springdatajpa.repository.TeamRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주요 repository 조회 경로 비교.
+ * ./gradlew jmh -Pjmh.includes=MemberRepositoryBenchmark
+ * <p>
+ * - 조건 조회: 메서드 이름 쿼리 vs @Query vs 순수 JPA JPQL
+ * - 연관 조회: fetch join vs @EntityGraph
+ * - DTO 조회 vs 엔티티 조회
+ * - Page(count 쿼리 포함) vs Slice(limit + 1)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberRepositoryBenchmark {
+
+    private static final int BENCH_AGE = 30;
+
+    @Param({"1000"})
+    int members;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    MemberJpaRepository memberJpaRepository;
+
+    PageRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        memberRepository = context.getBean(MemberRepository.class);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            teams.add(new Team("benchTeam" + i));
+        }
+        teamRepository.saveAll(teams);
+
+        List<Member> seed = new ArrayList<>();
+        for (int i = 0; i < members; i++) {
+            seed.add(new Member("bench" + (i % 100), BENCH_AGE, teams.get(i % teams.size())));
+        }
+        memberRepository.saveAllBatched(seed, 500);
+
+        pageRequest = PageRequest.of(2, 20, Sort.by(Sort.Direction.DESC, "username"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // 조건 조회
+
+    @Benchmark
+    public List<Member> derivedQuery() {
+        return memberRepository.findByUsernameAndAgeGreaterThan("bench7", BENCH_AGE - 1);
+    }
+
+    @Benchmark
+    public List<Member> annotatedQuery() {
+        return memberRepository.findUser("bench7", BENCH_AGE);
+    }
+
+    @Benchmark
+    public List<Member> handWrittenJpql() {
+        return memberJpaRepository.findByUsernameAndAgeGreaterThen("bench7", BENCH_AGE - 1);
+    }
+
+    // 연관 조회
+
+    @Benchmark
+    public List<Member> fetchJoin() {
+        return memberRepository.findMemberFetchJoin();
+    }
+
+    @Benchmark
+    public List<Member> entityGraph() {
+        return memberRepository.findMemberEntityGraph();
+    }
+
+    // DTO vs 엔티티
+
+    @Benchmark
+    public List<MemberDto> dtoProjection() {
+        return memberRepository.findMemberDto();
+    }
+
+    @Benchmark
+    public List<Member> entityLoad() {
+        return memberRepository.findMemberCustom();
+    }
+
+    // Page vs Slice
+
+    @Benchmark
+    public Page<Member> page() {
+        return memberRepository.findByAge(BENCH_AGE, pageRequest);
+    }
+
+    @Benchmark
+    public Slice<Member> slice() {
+        return memberRepository.findSliceByAge(BENCH_AGE, pageRequest);
+    }
+}
@@ -0,0 +1,135 @@
+package com.lee.springdatajpa.benchmark;
+
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.entity.Team;
+import com.lee.springdatajpa.repository.MemberRepository;
+import com.lee.springdatajpa.repository.TeamRepository;
+import com.lee.springdatajpa.repository.scan.MemberScanCollectors;
+import com.lee.springdatajpa.repository.scan.ParallelMemberScanner;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 전체 회원 리포트(팀별 나이 히스토그램): 직렬 findAll() vs ParallelMemberScanner.
+ * ./gradlew jmh -Pjmh.includes=ParallelScanBenchmark
+ * <p>
+ * - members 행(기본 500만)을 100개 팀에 나눠서 넣는다. (Trial마다 새로 넣으므로 준비 시간이 길다)
+ * - serial : 읽기 전용 트랜잭션 하나에서 findAll() 후 같은 Collector로 집계.
+ *   parallelism과 상관없으므로 따로 state({@link SerialScan})를 두고 한번만 측정한다.
+ * - parallel : parallelism 스레드(커넥션)로 member_id 범위를 나눠서 읽는다. 커넥션 풀은 parallelism + 2
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ParallelScanBenchmark {
+
+    private static final int TEAMS = 100;
+    private static final int AGE_BUCKET = 10;
+
+    @State(Scope.Benchmark)
+    public static class SerialScan {
+
+        @Param({"5000000"})
+        int members;
+
+        ConfigurableApplicationContext context;
+        MemberRepository memberRepository;
+        TransactionTemplate readOnlyTransaction;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = start(members, 1);
+            memberRepository = context.getBean(MemberRepository.class);
+            readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            readOnlyTransaction.setReadOnly(true);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ParallelScan {
+
+        @Param({"5000000"})
+        int members;
+
+        @Param({"1", "4", "8"})
+        int parallelism;
+
+        ConfigurableApplicationContext context;
+        ParallelMemberScanner scanner;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = start(members, parallelism);
+            scanner = context.getBean(ParallelMemberScanner.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Map<Long, Map<Integer, Long>> serialFindAll(SerialScan state) {
+        return state.readOnlyTransaction.execute(status ->
+                state.memberRepository.findAll().stream().collect(MemberScanCollectors.teamAgeHistogram(AGE_BUCKET)));
+    }
+
+    @Benchmark
+    public Map<Long, Map<Integer, Long>> parallelScan(ParallelScan state) {
+        return state.scanner.scan(MemberScanCollectors.teamAgeHistogram(AGE_BUCKET));
+    }
+
+    private static ConfigurableApplicationContext start(int members, int parallelism) {
+        ConfigurableApplicationContext context = BenchmarkContext.start(
+                "member.parallel-scan.parallelism=" + parallelism,
+                "spring.datasource.hikari.maximum-pool-size=" + (parallelism + 2),
+                "spring.datasource.hikari.minimum-idle=" + (parallelism + 2),
+                // 500만건을 2차 캐시에 넣지 않는다.
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false");
+
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+        List<Team> newTeams = new ArrayList<>();
+        for (int i = 0; i < TEAMS; i++) {
+            newTeams.add(new Team("scanTeam" + i));
+        }
+        teamRepository.saveAll(newTeams);
+        // 다시 조회한 준영속 팀은 members가 로딩 전이므로 changeTeam이 회원을 컬렉션에 쌓아두지 않는다.
+        List<Team> teams = teamRepository.findAll();
+
+        // 500만개를 한번에 만들지 않고 넣을 때 하나씩 만든다.
+        Iterable<Member> seed = () -> new Iterator<Member>() {
+            int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < members;
+            }
+
+            @Override
+            public Member next() {
+                Member member = new Member("scan" + i, i % 100, teams.get(i % TEAMS));
+                i++;
+                return member;
+            }
+        };
+        context.getBean(MemberRepository.class).insertAllStateless(seed, 5000);
+        return context;
+    }
+}
@@ -0,0 +1,50 @@
+package com.lee.springdatajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 컨텍스트 시작 시간 (SpringApplication.run 이 끝날 때 = ApplicationReadyEvent 까지).
+ * ./gradlew jmh -Pjmh.includes=StartupBenchmark
+ * <p>
+ * - bootstrapMode : JPA repository 초기화 방식 (default: 컨텍스트와 같이, deferred: EntityManagerFactory 백그라운드 생성)
+ * - indexIgnore : true 면 META-INF/spring.components 를 무시하고 클래스패스를 스캔한다.
+ * 인덱스 사용 여부는 클래스 로더마다 한번만 읽으므로 파라미터 조합마다 fork 를 새로 띄운다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(3)
+public class StartupBenchmark {
+
+    @Param({"default", "deferred"})
+    String bootstrapMode;
+
+    @Param({"false", "true"})
+    String indexIgnore;
+
+    ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("spring.index.ignore", indexIgnore);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext start() {
+        context = BenchmarkContext.start("spring.data.jpa.repositories.bootstrap-mode=" + bootstrapMode);
+        return context;
+    }
+}
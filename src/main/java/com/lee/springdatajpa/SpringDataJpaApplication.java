@@ -1,16 +1,18 @@
 package com.lee.springdatajpa;
 
+import com.lee.springdatajpa.audit.AuditContext;
+import com.lee.springdatajpa.audit.CachedAuditorAware;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
-import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 @SpringBootApplication
-@EnableJpaAuditing
+@EnableJpaAuditing(dateTimeProviderRef = "auditClock")
 public class SpringDataJpaApplication {
 
     public static void main(String[] args) {
@@ -18,13 +20,16 @@ public class SpringDataJpaApplication {
     }
 
 
+    // 실제로는 로그인 사용자. 트랜잭션마다 한번만 만들고,
+    // SecureRandom을 쓰는 UUID.randomUUID() 대신 ThreadLocalRandom으로 만든다. (엔트로피 대기 없음)
+    // randomUUID()와 같은 version 4 (random), IETF variant 비트를 채운다.
     @Bean
-    public AuditorAware<String> auditorProvider(){
-        return new AuditorAware<String>() {
-            @Override
-            public Optional<String> getCurrentAuditor() {
-                return Optional.of(UUID.randomUUID().toString());
-            }
-        };
+    public AuditorAware<String> auditorProvider(AuditContext auditContext){
+        return new CachedAuditorAware(auditContext, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+            long leastSigBits = (random.nextLong() & ~(0xC000L << 48)) | (0x8000L << 48);
+            return new UUID(mostSigBits, leastSigBits).toString();
+        });
     }
 }
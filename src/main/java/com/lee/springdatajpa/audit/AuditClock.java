@@ -0,0 +1,54 @@
+package com.lee.springdatajpa.audit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAccessor;
+import java.util.Optional;
+
+/**
+ * 생성/수정 시각의 시계. JpaBaseEntity(AuditEventListener)와 BaseTimeEntity(스프링 데이터 auditing)가 같이 쓴다.
+ * <p>
+ * - SYSTEM : 엔티티마다 현재 시각
+ * - TRANSACTION : 트랜잭션에서 처음 물어본 시각을 커밋까지 재사용 (같은 트랜잭션에서 저장한 엔티티는 시각이 같다)
+ * auditing이 꺼져 있으면({@link AuditContext#suppress}) 시각을 채우지 않는다.
+ */
+@Component
+public class AuditClock implements DateTimeProvider {
+
+    public enum Mode { SYSTEM, TRANSACTION }
+
+    private final Clock clock;
+    private final Mode mode;
+    private final AuditContext auditContext;
+    private final TransactionScopedValue<LocalDateTime> transactionNow;
+
+    @Autowired
+    public AuditClock(@Value("${audit.clock:SYSTEM}") Mode mode, AuditContext auditContext) {
+        this(Clock.systemDefaultZone(), mode, auditContext);
+    }
+
+    AuditClock(Clock clock, Mode mode, AuditContext auditContext) {
+        this.clock = clock;
+        this.mode = mode;
+        this.auditContext = auditContext;
+        this.transactionNow = new TransactionScopedValue<>(() -> LocalDateTime.now(clock));
+    }
+
+    public LocalDateTime now() {
+        return mode == Mode.TRANSACTION ? transactionNow.get() : LocalDateTime.now(clock);
+    }
+
+    public boolean isEnabled() {
+        return !auditContext.isSuppressed();
+    }
+
+    @Override
+    public Optional<TemporalAccessor> getNow() {
+        return isEnabled() ? Optional.of(now()) : Optional.empty();
+    }
+}
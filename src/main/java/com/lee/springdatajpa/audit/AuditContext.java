@@ -0,0 +1,41 @@
+package com.lee.springdatajpa.audit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * auditing(생성/수정 시각, 생성/수정자)을 현재 스레드에서 잠시 끈다.
+ * 대량 적재는 bulkImport()로 감싸고, audit.bulk-import=false 인 프로필(ingest)에서만 실제로 꺼진다.
+ */
+@Component
+public class AuditContext {
+
+    private final ThreadLocal<Boolean> suppressed = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private final boolean auditBulkImport;
+
+    public AuditContext(@Value("${audit.bulk-import:true}") boolean auditBulkImport) {
+        this.auditBulkImport = auditBulkImport;
+    }
+
+    public boolean isSuppressed() {
+        return suppressed.get();
+    }
+
+    public <T> T suppress(Supplier<T> work) {
+        if (isSuppressed()) {
+            return work.get();
+        }
+        suppressed.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            suppressed.remove();
+        }
+    }
+
+    public <T> T bulkImport(Supplier<T> work) {
+        return auditBulkImport ? work.get() : suppress(work);
+    }
+}
@@ -0,0 +1,60 @@
+package com.lee.springdatajpa.audit;
+
+import com.lee.springdatajpa.entity.JpaBaseEntity;
+import org.hibernate.event.spi.PersistEvent;
+import org.hibernate.event.spi.PersistEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.proxy.HibernateProxy;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * JpaBaseEntity의 생성/수정 시각을 채우는 하이버네이트 이벤트 리스너.
+ * 컨텍스트마다 자기 AuditClock으로 만들어서 그 컨텍스트의 SessionFactory에만 등록한다. (HibernateListenerConfig)
+ * <p>
+ * - persist : 아직 저장 안 된(@Version이 없는) 엔티티의 생성/수정 시각. @PrePersist처럼 persist 하는 시점에 정한다.
+ * - pre-update : flush에서 변경이 감지된 엔티티의 수정 시각. 이미 뽑아 둔 update 상태 배열에도 같이 넣는다.
+ */
+public class AuditEventListener implements PersistEventListener, PreUpdateEventListener {
+
+    private static final String UPDATED_DATE = "updatedDate";
+
+    private final AuditClock auditClock;
+
+    public AuditEventListener(AuditClock auditClock) {
+        this.auditClock = auditClock;
+    }
+
+    @Override
+    public void onPersist(PersistEvent event) {
+        created(event.getObject());
+    }
+
+    @Override
+    public void onPersist(PersistEvent event, Map createdAlready) {
+        created(event.getObject());
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        if (event.getEntity() instanceof JpaBaseEntity && auditClock.isEnabled()) {
+            LocalDateTime now = auditClock.now();
+            ((JpaBaseEntity) event.getEntity()).updated(now);
+            event.getState()[event.getPersister().getEntityMetamodel().getPropertyIndex(UPDATED_DATE)] = now;
+        }
+        return false;
+    }
+
+    // 이미 영속 상태인 엔티티를 다시 persist 하거나 cascade로 다시 들어와도 생성 시각은 그대로 둔다.
+    private void created(Object entity) {
+        if (!(entity instanceof JpaBaseEntity) || entity instanceof HibernateProxy) {
+            return;
+        }
+        JpaBaseEntity baseEntity = (JpaBaseEntity) entity;
+        if (baseEntity.getVersion() == null && auditClock.isEnabled()) {
+            baseEntity.created(auditClock.now());
+        }
+    }
+}
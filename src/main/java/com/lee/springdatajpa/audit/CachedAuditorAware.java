@@ -0,0 +1,23 @@
+package com.lee.springdatajpa.audit;
+
+import org.springframework.data.domain.AuditorAware;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// 생성/수정자는 트랜잭션마다 한번만 구해서 그 트랜잭션에서 저장/수정하는 엔티티 전부에 쓴다.
+public class CachedAuditorAware implements AuditorAware<String> {
+
+    private final AuditContext auditContext;
+    private final TransactionScopedValue<String> auditor;
+
+    public CachedAuditorAware(AuditContext auditContext, Supplier<String> auditorResolver) {
+        this.auditContext = auditContext;
+        this.auditor = new TransactionScopedValue<>(auditorResolver);
+    }
+
+    @Override
+    public Optional<String> getCurrentAuditor() {
+        return auditContext.isSuppressed() ? Optional.empty() : Optional.of(auditor.get());
+    }
+}
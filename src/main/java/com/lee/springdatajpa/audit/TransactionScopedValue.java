@@ -0,0 +1,53 @@
+package com.lee.springdatajpa.audit;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * 트랜잭션마다 한번만 만들어서 커밋/롤백 될 때까지 재사용하는 값.
+ * REQUIRES_NEW로 바깥 트랜잭션이 보류되면 같이 보류되고, 안쪽 트랜잭션은 자기 값을 따로 만든다.
+ * 트랜잭션 밖에서는 매번 새로 만든다.
+ */
+class TransactionScopedValue<T> {
+
+    private final Supplier<T> factory;
+
+    TransactionScopedValue(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return factory.get();
+        }
+        T value = (T) TransactionSynchronizationManager.getResource(this);
+        if (value == null) {
+            value = factory.get();
+            bind(value);
+        }
+        return value;
+    }
+
+    private void bind(T value) {
+        TransactionSynchronizationManager.bindResource(this, value);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TransactionScopedValue.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(TransactionScopedValue.this, value);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TransactionScopedValue.this);
+            }
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package com.lee.springdatajpa.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * repository @Async 메서드를 실행할 executor.
+ * 어차피 커넥션 수 이상 동시에 DB를 쓸 수 없으므로 동시 실행 수를 커넥션 풀 크기로 제한한다.
+ * <p>
+ * - platform : 풀 크기만큼 고정 스레드 + 크기가 정해진 대기 큐 (가득 차면 TaskRejectedException)
+ * - virtual : JDK 21+ 가상 스레드. 작업마다 가상 스레드를 만들고 동시 실행 수만 풀 크기로 제한한다.
+ *   대기 중인 작업도 queue-capacity 개까지만 받는다. (넘으면 platform 처럼 TaskRejectedException)
+ *   JDK 21 미만이면 platform 으로 동작한다.
+ */
+@Slf4j
+@Configuration
+@EnableAsync
+public class AsyncRepositoryConfig {
+
+    public static final String REPOSITORY_EXECUTOR = "repositoryExecutor";
+
+    public enum Mode { PLATFORM, VIRTUAL }
+
+    @Bean(name = REPOSITORY_EXECUTOR)
+    public AsyncTaskExecutor repositoryExecutor(@Value("${async.repository.executor:PLATFORM}") Mode mode,
+                                                @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                                @Value("${async.repository.queue-capacity:200}") int queueCapacity) {
+        if (mode == Mode.VIRTUAL) {
+            Optional<ExecutorService> virtual = virtualThreadPerTaskExecutor();
+            if (virtual.isPresent()) {
+                return new VirtualThreadTaskExecutor(virtual.get(), poolSize, queueCapacity);
+            }
+            log.warn("virtual threads require JDK 21+, using platform threads for {}", REPOSITORY_EXECUTOR);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("repository-");
+        return executor;
+    }
+
+    // executor 빈을 직접 만들면 스프링 부트 기본 executor(MVC 비동기 응답, 기본 @Async)가 만들어지지 않으므로 같이 등록한다.
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    @Primary
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    private static TaskDecorator concurrencyLimit(int permits) {
+        Semaphore semaphore = new Semaphore(permits);
+        return task -> () -> {
+            semaphore.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                semaphore.release();
+            }
+        };
+    }
+
+    // 소스 레벨이 11이므로 JDK 21 API는 리플렉션으로 찾는다.
+    private Optional<ExecutorService> virtualThreadPerTaskExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, "repository-virtual-", 0L);
+            ThreadFactory factory = (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            return Optional.of((ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 가상 스레드 executor. 실행 중(poolSize) + 대기 중(queueCapacity) 작업 수를 넘으면 받지 않고,
+     * 컨텍스트가 닫힐 때 ThreadPoolTaskExecutor 처럼 shutdownNow 한다.
+     */
+    private static class VirtualThreadTaskExecutor extends TaskExecutorAdapter implements DisposableBean {
+
+        private final ExecutorService executorService;
+        private final Semaphore admitted;
+
+        VirtualThreadTaskExecutor(ExecutorService executorService, int poolSize, int queueCapacity) {
+            super(executorService);
+            this.executorService = executorService;
+            this.admitted = new Semaphore(poolSize + queueCapacity);
+            setTaskDecorator(concurrencyLimit(poolSize));
+        }
+
+        // execute, submit 모두 여기를 거친다.
+        @Override
+        protected void doExecute(Executor concurrentExecutor, TaskDecorator taskDecorator, Runnable runnable) {
+            if (!admitted.tryAcquire()) {
+                throw new TaskRejectedException("repository executor queue is full");
+            }
+            try {
+                super.doExecute(concurrentExecutor, taskDecorator, () -> {
+                    try {
+                        runnable.run();
+                    } finally {
+                        admitted.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                admitted.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void destroy() {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.lee.springdatajpa.config;
+
+import com.lee.springdatajpa.audit.AuditClock;
+import com.lee.springdatajpa.audit.AuditEventListener;
+import com.lee.springdatajpa.stats.TeamStatsEventListener;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+
+/**
+ * 엔티티 변경에 반응하는 하이버네이트 이벤트 리스너를 이 컨텍스트의 SessionFactory에 등록한다.
+ * <p>
+ * 엔티티가 static으로 빈을 찾아 쓰면 한 JVM에 컨텍스트가 여러 개일 때(테스트 컨텍스트 캐시 등) 마지막에 뜬 컨텍스트의 빈을 쓴다.
+ * 리스너는 EntityManagerFactory 빈을 만들기 전에 메인 스레드에서 만들어 넘기므로,
+ * EntityManagerFactory를 백그라운드에서 만들 때(deferred bootstrap)도 빈 팩토리를 건드리지 않는다.
+ */
+@Configuration
+public class HibernateListenerConfig {
+
+    // 의존하는 빈이 없으므로 EntityManagerFactory보다 먼저 만들어도 된다. (StatelessSession 쓰기도 여기에 증감을 넘긴다)
+    @Bean
+    public TeamStatsEventListener teamStatsEventListener() {
+        return new TeamStatsEventListener();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateListenersCustomizer(AuditClock auditClock, TeamStatsEventListener teamStatsEventListener) {
+        ListenerIntegrator integrator = new ListenerIntegrator(new AuditEventListener(auditClock), teamStatsEventListener);
+        return properties -> properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> Collections.singletonList(integrator));
+    }
+
+    private static class ListenerIntegrator implements Integrator {
+
+        private final AuditEventListener auditEventListener;
+        private final TeamStatsEventListener teamStatsEventListener;
+
+        ListenerIntegrator(AuditEventListener auditEventListener, TeamStatsEventListener teamStatsEventListener) {
+            this.auditEventListener = auditEventListener;
+            this.teamStatsEventListener = teamStatsEventListener;
+        }
+
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                              SessionFactoryServiceRegistry serviceRegistry) {
+            EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+            // 기본 persist 리스너가 @Version 초기값을 넣기 전에 새 엔티티인지 봐야 하므로 앞에 둔다.
+            registry.prependListeners(EventType.PERSIST, auditEventListener);
+            registry.prependListeners(EventType.PERSIST_ONFLUSH, auditEventListener);
+            registry.appendListeners(EventType.PRE_UPDATE, auditEventListener);
+            registry.appendListeners(EventType.POST_INSERT, teamStatsEventListener);
+            registry.appendListeners(EventType.POST_UPDATE, teamStatsEventListener);
+            registry.appendListeners(EventType.POST_DELETE, teamStatsEventListener);
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+    }
+}
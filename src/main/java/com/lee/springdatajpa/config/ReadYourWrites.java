@@ -0,0 +1,83 @@
+package com.lee.springdatajpa.config;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+
+/**
+ * 쓰기 직후 읽기를 primary로 보낼지 정하는 표시. 스레드가 아니라 요청(클라이언트) 단위로 들고 다닌다.
+ * <p>
+ * - 같은 요청 : {@link ReadYourWritesFilter}가 요청마다 하나 만들어 요청을 처리하는 동안만 현재 스레드에 묶는다.
+ * - 다음 요청 : 쓰기가 있었으면 응답에 쿠키(primary 로 읽을 시각, epoch millis)를 내려주고 다음 요청에서 읽는다.
+ *   다음 요청이 다른 Tomcat 스레드나 다른 인스턴스로 가도 같다.
+ * 요청 밖(배치, @Async 스레드)에서는 표시가 없으므로 읽기 전용 트랜잭션은 그대로 replica로 간다.
+ */
+public class ReadYourWrites {
+
+    static final String COOKIE_NAME = "primary-read-until";
+
+    private static final ThreadLocal<ReadYourWrites> CURRENT = new ThreadLocal<>();
+
+    private final HttpServletResponse response;
+    private final Duration window;
+    private volatile long primaryUntil;
+
+    ReadYourWrites(HttpServletResponse response, Duration window, long primaryUntil) {
+        this.response = response;
+        this.window = window;
+        this.primaryUntil = primaryUntil;
+    }
+
+    // 쿠키 값은 클라이언트가 바꿀 수 있으므로 window 보다 먼 시각은 무시한다.
+    static ReadYourWrites of(HttpServletRequest request, HttpServletResponse response, Duration window) {
+        long primaryUntil = 0;
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    primaryUntil = parse(cookie.getValue(), System.currentTimeMillis() + window.toMillis());
+                }
+            }
+        }
+        return new ReadYourWrites(response, window, primaryUntil);
+    }
+
+    static ReadYourWrites current() {
+        return CURRENT.get();
+    }
+
+    static void bind(ReadYourWrites readYourWrites) {
+        CURRENT.set(readYourWrites);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    boolean readsFromPrimary() {
+        return System.currentTimeMillis() < primaryUntil;
+    }
+
+    // 처음 쓸 때만 쿠키를 내려준다. (한 요청 안의 쓰기는 요청 시간만큼만 차이 난다)
+    void markWrite() {
+        boolean first = !readsFromPrimary();
+        primaryUntil = System.currentTimeMillis() + window.toMillis();
+        if (first && response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(primaryUntil));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (window.toMillis() + 999) / 1000));
+            response.addCookie(cookie);
+        }
+    }
+
+    private static long parse(String value, long max) {
+        try {
+            long until = Long.parseLong(value);
+            return until > max ? 0 : until;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
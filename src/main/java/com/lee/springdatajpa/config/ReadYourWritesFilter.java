@@ -0,0 +1,30 @@
+package com.lee.springdatajpa.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// 요청을 처리하는 동안 그 요청(클라이언트)의 쓰기 표시({@link ReadYourWrites})를 현재 스레드에 묶는다.
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final ReplicaProperties properties;
+
+    public ReadYourWritesFilter(ReplicaProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReadYourWrites.bind(ReadYourWrites.of(request, response, properties.getReadYourWritesWindow()));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.unbind();
+        }
+    }
+}
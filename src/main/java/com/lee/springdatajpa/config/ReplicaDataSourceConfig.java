@@ -0,0 +1,60 @@
+package com.lee.springdatajpa.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * replica.datasource.jdbc-url 이 설정되어 있으면 primary / replica 두 개의 커넥션 풀을 만들고
+ * 읽기 전용 트랜잭션은 replica로 보낸다. 설정이 없으면 스프링 부트 기본 DataSource 하나만 사용한다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "replica.datasource", name = "jdbc-url")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaDataSourceConfig {
+
+    // p6spy가 DataSource 빈을 감싸므로 타입은 DataSource로 두고 이름으로 주입받는다.
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public DataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("replica.datasource")
+    public DataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    public DataSource routingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                        @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                        ReplicaProperties properties) {
+        return new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, properties);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReplicaProperties properties) {
+        return new ReadYourWritesFilter(properties);
+    }
+
+    // 트랜잭션의 readOnly 여부가 정해진 뒤, 실제 쿼리를 실행할 때 커넥션을 얻도록 지연시킨다.
+    @Bean
+    @Primary
+    public DataSource lazyRoutingDataSource(@Qualifier("routingDataSource") DataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
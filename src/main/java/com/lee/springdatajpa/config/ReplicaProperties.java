@@ -0,0 +1,20 @@
+package com.lee.springdatajpa.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// replica.* 설정 (커넥션 풀 설정은 replica.datasource.*)
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "replica")
+public class ReplicaProperties {
+
+    // 같은 클라이언트가 쓰기 트랜잭션 후 이 시간 동안은 읽기도 primary로 보낸다. (복제 지연 대비, 요청/쿠키 단위)
+    private Duration readYourWritesWindow = Duration.ofSeconds(1);
+
+    // replica 커넥션을 못 얻으면 이 시간 동안 primary로 보낸 뒤 다시 시도한다.
+    private Duration retryInterval = Duration.ofSeconds(30);
+}
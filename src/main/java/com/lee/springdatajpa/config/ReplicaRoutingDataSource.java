@@ -0,0 +1,101 @@
+package com.lee.springdatajpa.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))은 replica, 나머지는 primary로 보낸다.
+ * 트랜잭션 시작 시점에는 readOnly 여부가 아직 설정되지 않으므로 반드시 LazyConnectionDataSourceProxy로 감싸서 사용한다.
+ * <p>
+ * - 같은 클라이언트가 쓰기 직후(readYourWritesWindow)에는 복제 지연 때문에 읽기도 primary로 보낸다. ({@link ReadYourWrites})
+ * - replica 커넥션을 얻지 못하면 retryInterval 동안 primary로 대신 보낸다.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaProperties properties;
+
+    private volatile boolean replicaDown;
+    private volatile long replicaDownUntil;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaProperties properties) {
+        this.primary = primary;
+        this.replica = replica;
+        this.properties = properties;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ReadYourWrites readYourWrites = ReadYourWrites.current();
+            if (readYourWrites != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                readYourWrites.markWrite();
+            }
+            return Route.PRIMARY;
+        }
+        ReadYourWrites readYourWrites = ReadYourWrites.current();
+        if ((readYourWrites != null && readYourWrites.readsFromPrimary()) || isReplicaDown()) {
+            return Route.PRIMARY;
+        }
+        return Route.REPLICA;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Route.REPLICA) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                markReplicaDown(e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (determineCurrentLookupKey() == Route.REPLICA) {
+            try {
+                return replica.getConnection(username, password);
+            } catch (SQLException | RuntimeException e) {
+                markReplicaDown(e);
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+
+    // nanoTime은 음수일 수도 있으므로 0과 비교하지 않고 down 여부를 따로 둔다.
+    private boolean isReplicaDown() {
+        if (!replicaDown) {
+            return false;
+        }
+        if (System.nanoTime() - replicaDownUntil < 0) {
+            return true;
+        }
+        replicaDown = false;
+        return false;
+    }
+
+    private void markReplicaDown(Exception e) {
+        replicaDownUntil = System.nanoTime() + properties.getRetryInterval().toNanos();
+        replicaDown = true;
+        log.warn("replica connection failed, routing reads to primary for {}", properties.getRetryInterval(), e);
+    }
+}
@@ -0,0 +1,9 @@
+package com.lee.springdatajpa.controller;
+
+// 요청 파라미터(cursor, size, format)가 잘못된 경우. 메시지는 그대로 400 응답 본문이 된다.
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
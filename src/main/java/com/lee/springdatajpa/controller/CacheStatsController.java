@@ -0,0 +1,23 @@
+package com.lee.springdatajpa.controller;
+
+import com.lee.springdatajpa.dto.CacheRegionStats;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+// 2차 캐시 / 쿼리 캐시 리전별 hit, miss 통계 (hibernate.generate_statistics 필요)
+@RestController
+@RequiredArgsConstructor
+public class CacheStatsController {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @GetMapping("/cache/stats")
+    public List<CacheRegionStats> stats(){
+        return CacheRegionStats.of(entityManagerFactory.unwrap(SessionFactory.class).getStatistics());
+    }
+}
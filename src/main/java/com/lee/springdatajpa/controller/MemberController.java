@@ -1,51 +1,158 @@
 package com.lee.springdatajpa.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lee.springdatajpa.dto.CursorPage;
+import com.lee.springdatajpa.dto.MemberCursor;
 import com.lee.springdatajpa.dto.MemberDto;
 import com.lee.springdatajpa.entity.Member;
 import com.lee.springdatajpa.repository.MemberRepository;
+import com.lee.springdatajpa.service.MemberQueryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import javax.annotation.PostConstruct;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    // keyset 페이지 최대 크기 (offset 페이징의 max-page-size 처럼)
+    static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     private final MemberRepository memberRepository;
+    private final MemberQueryService memberQueryService;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
 
+    // open-in-view: false 이므로 커넥션은 memberQueryService 트랜잭션 동안만 쓰고, 응답을 쓰기 전에 반납된다.
     @GetMapping("/members/v1/{id}")
-    public String findMemberV1(@PathVariable("id") Long id){
-        Member member = memberRepository.findById(id).get();
-        return member.getUsername();
+    public ResponseEntity<String> findMemberV1(@PathVariable("id") Long id){
+        return ResponseEntity.of(memberQueryService.findUsername(id));
     }
 
     // 도메인 클래스 컨버터
     // HTTP 요청은 회원 id를 받지만 도메인 클래스 컨버터가 중간에 동작해서 회원 엔티티 객체를 반환
     // 트랜잭션이 없는 범위에서 엔티티를 조회했으므로, 엔티티를 변경해도 DB에 반영되지 않음
+    // open-in-view를 껐으므로 준영속 엔티티다. 지연 로딩(member.getTeam().getName())은 LazyInitializationException
     @GetMapping("/members/v2/{id}")
     public String findMemberV2(@PathVariable("id") Member member){
         return member.getUsername();
     }
 
+    // 팀까지 필요한 화면은 fetch plan(MEMBER_WITH_TEAM)으로 한번에 조회해서 트랜잭션 안에서 DTO로 바꾼다.
+    @GetMapping("/members/v3/{id}")
+    public ResponseEntity<MemberDto> findMemberV3(@PathVariable("id") Long id){
+        return ResponseEntity.of(memberQueryService.findMember(id));
+    }
+
     @GetMapping("/members")
     public Page<MemberDto> list(@PageableDefault(size = 5) Pageable pageable){
         // 엔티티를 외부에 노출해서는 안된다.
-        Page<Member> page = memberRepository.findAll(pageable);
-        // map을 사용해서 dto로 변환해서 노출
-        Page<MemberDto> map = page.map(MemberDto::new);
-        return map;
+        // 엔티티를 조회해서 변환하지 않고 필요한 컬럼만 DTO로 바로 조회 (count 쿼리 결과는 PageCountCache 사용)
+        return memberQueryService.list(pageable);
+    }
+
+    // 비동기 조회. 요청 스레드(Tomcat)는 바로 반납되고 DB 대기는 repositoryExecutor 스레드에서 한다.
+    @GetMapping("/members/async")
+    public CompletableFuture<Page<MemberDto>> listAsync(@PageableDefault(size = 5) Pageable pageable){
+        return memberRepository.findMemberDtoPageAsync(pageable);
+    }
+
+    @GetMapping("/members/async/{id}")
+    public CompletableFuture<ResponseEntity<MemberDto>> findMemberAsync(@PathVariable("id") Long id){
+        return memberRepository.findMemberDtoAsync(id)
+                .thenApply(dto -> dto == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(dto));
+    }
+
+    // repositoryExecutor 대기 큐가 가득 차면 기다리게 하지 않고 바로 503
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Void> rejected(){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+    // 잘못된 cursor 토큰, size, format 은 500이 아니라 400
+    // 다른 IllegalArgumentException은 내부 메시지가 그대로 나가지 않도록 여기서 받지 않는다.
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<String> badRequest(BadRequestException e){
+        return ResponseEntity.badRequest().body(e.getMessage());
     }
 
-    @PostConstruct
-    public void init(){
-        for(int i=0; i<100; i++){
-            memberRepository.save(new Member("user"+i, i));
+    // keyset 페이징. 응답의 nextCursor를 다음 요청의 cursor로 넘긴다.
+    // offset을 쓰지 않으므로 몇 번째 페이지든 비용이 같다.
+    @GetMapping("/members/cursor")
+    public CursorPage<MemberDto> cursorList(@RequestParam(value = "cursor", required = false) String cursor,
+                                            @RequestParam(value = "size", defaultValue = "5") int size){
+        // repository 안에서 PageRequest가 던지면 InvalidDataAccessApiUsageException으로 바뀌므로 여기서 먼저 확인한다.
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new BadRequestException("size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
         }
+        MemberCursor memberCursor = cursor == null ? null : decodeCursor(cursor);
+        return memberQueryService.cursorList(memberCursor, size);
+    }
+
+    private static MemberCursor decodeCursor(String cursor) {
+        try {
+            return MemberCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("invalid cursor");
+        }
+    }
+
+    private static MemberExportFormat exportFormat(String format) {
+        try {
+            return MemberExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("format must be ndjson or csv");
+        }
+    }
+
+    // 전체 회원을 List로 모으지 않고 DB 커서에서 읽는 대로 응답에 바로 쓴다. (format=ndjson|csv)
+    // 응답은 별도 스레드에서 써지므로 그 안에서 읽기 전용 트랜잭션을 열어 Stream을 사용한다.
+    @GetMapping("/members/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "format", defaultValue = "ndjson") String format){
+        MemberExportFormat exportFormat = exportFormat(format);
+
+        StreamingResponseBody body = outputStream -> {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<MemberDto> members = memberRepository.streamMemberDto()) {
+                    exportFormat.writeHeader(writer);
+                    for (MemberDto dto : (Iterable<MemberDto>) members::iterator) {
+                        exportFormat.writeRow(writer, objectMapper, dto);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .body(body);
     }
 }
@@ -0,0 +1,60 @@
+package com.lee.springdatajpa.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lee.springdatajpa.dto.MemberDto;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// /members/export 응답 포맷. 한 행씩 바로 써서 전체 결과를 메모리에 올리지 않는다.
+public enum MemberExportFormat {
+
+    NDJSON("application/x-ndjson") {
+        @Override
+        void writeRow(Writer writer, ObjectMapper objectMapper, MemberDto dto) throws IOException {
+            writer.write(objectMapper.writeValueAsString(dto));
+            writer.write('\n');
+        }
+    },
+    CSV("text/csv") {
+        @Override
+        void writeHeader(Writer writer) throws IOException {
+            writer.write("id,username,teamName\n");
+        }
+
+        @Override
+        void writeRow(Writer writer, ObjectMapper objectMapper, MemberDto dto) throws IOException {
+            writer.write(String.valueOf(dto.getId()));
+            writer.write(',');
+            writer.write(escape(dto.getUsername()));
+            writer.write(',');
+            writer.write(escape(dto.getTeamName()));
+            writer.write('\n');
+        }
+    };
+
+    private final String contentType;
+
+    MemberExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    void writeHeader(Writer writer) throws IOException {
+    }
+
+    abstract void writeRow(Writer writer, ObjectMapper objectMapper, MemberDto dto) throws IOException;
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
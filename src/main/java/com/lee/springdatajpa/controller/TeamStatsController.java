@@ -0,0 +1,39 @@
+package com.lee.springdatajpa.controller;
+
+import com.lee.springdatajpa.dto.TeamStatsDto;
+import com.lee.springdatajpa.repository.TeamStatsRepository;
+import com.lee.springdatajpa.stats.TeamStatsTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// 팀별 회원 수, 나이 통계. Team.members나 Member를 집계하지 않고 TeamStats 행을 그대로 읽는다.
+@RestController
+@RequiredArgsConstructor
+public class TeamStatsController {
+
+    private final TeamStatsRepository teamStatsRepository;
+    private final TeamStatsTracker teamStatsTracker;
+
+    @GetMapping("/teams/{id}/stats")
+    public ResponseEntity<TeamStatsDto> stats(@PathVariable("id") Long id){
+        return ResponseEntity.of(teamStatsRepository.findById(id).map(TeamStatsDto::new));
+    }
+
+    @GetMapping("/teams/stats")
+    public List<TeamStatsDto> allStats(){
+        return teamStatsRepository.findAll().stream().map(TeamStatsDto::new).collect(Collectors.toList());
+    }
+
+    // SQL로 직접 데이터를 고쳤을 때처럼 증감이 어긋났으면 다시 집계한다.
+    @PostMapping("/teams/stats/rebuild")
+    public int rebuild(){
+        return teamStatsTracker.rebuild();
+    }
+}
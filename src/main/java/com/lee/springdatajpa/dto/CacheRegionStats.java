@@ -0,0 +1,41 @@
+package com.lee.springdatajpa.dto;
+
+import lombok.Data;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CacheRegionStats {
+    private String region;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+
+    public CacheRegionStats(String region, long hitCount, long missCount, long putCount){
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+    }
+
+    // 2차 캐시 / 쿼리 캐시 리전별 통계 (/cache/stats, /actuator/hibernate 공통)
+    public static List<CacheRegionStats> of(Statistics statistics){
+        List<CacheRegionStats> result = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                result.add(new CacheRegionStats(region, regionStatistics.getHitCount(),
+                        regionStatistics.getMissCount(), regionStatistics.getPutCount()));
+            }
+        }
+        return result;
+    }
+
+    public double getHitRatio(){
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+}
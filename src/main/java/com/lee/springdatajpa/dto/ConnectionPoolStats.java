@@ -0,0 +1,29 @@
+package com.lee.springdatajpa.dto;
+
+import lombok.Data;
+
+/**
+ * 커넥션 풀 하나의 현재 상태와 누적 대기/사용 시간.
+ * - acquire(커넥션을 얻을 때까지 기다린 시간)가 크고 threadsAwaitingConnection > 0 이면 풀 부족
+ * - usage(커넥션을 빌려서 반납할 때까지)가 크면 느린 쿼리나 긴 트랜잭션
+ */
+@Data
+public class ConnectionPoolStats {
+    private String pool;
+    private int active;
+    private int idle;
+    private int total;
+    private int threadsAwaitingConnection;
+    private int maximumPoolSize;
+    private int minimumIdle;
+    private long connectionTimeoutMs;
+    private long leakDetectionThresholdMs;
+
+    // hikaricp.connections.* 미터 (MeterRegistry가 없으면 0)
+    private double connectionTimeouts;
+    private long acquireCount;
+    private double acquireMeanMs;
+    private double acquireMaxMs;
+    private double usageMeanMs;
+    private double usageMaxMs;
+}
@@ -0,0 +1,45 @@
+package com.lee.springdatajpa.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// /actuator/hibernate 응답. 값은 애플리케이션 시작 이후 누적
+@Data
+public class HibernateStats {
+
+    // 쿼리 플랜 캐시 (JPQL 파싱 결과). hit 비율이 낮으면 plan_cache_max_size 나 IN 절 padding 확인
+    private long queryPlanCacheHitCount;
+    private long queryPlanCacheMissCount;
+
+    private long queryExecutionCount;
+    private long queryExecutionMaxTimeMs;
+    private String queryExecutionMaxTimeQueryString;
+
+    private long entityLoadCount;
+    private long entityFetchCount;
+    private long entityInsertCount;
+    private long entityUpdateCount;
+    private long entityDeleteCount;
+    private long collectionLoadCount;
+    private long collectionFetchCount;
+
+    private long flushCount;
+    private long sessionOpenCount;
+    private long transactionCount;
+    private long prepareStatementCount;
+    private long optimisticFailureCount;
+
+    private long secondLevelCacheHitCount;
+    private long secondLevelCacheMissCount;
+    private long secondLevelCachePutCount;
+    private long queryCacheHitCount;
+    private long queryCacheMissCount;
+    private long queryCachePutCount;
+    private List<CacheRegionStats> cacheRegions;
+
+    public double getQueryPlanCacheHitRatio(){
+        long total = queryPlanCacheHitCount + queryPlanCacheMissCount;
+        return total == 0 ? 0 : (double) queryPlanCacheHitCount / total;
+    }
+}
@@ -0,0 +1,51 @@
+package com.lee.springdatajpa.dto;
+
+import com.lee.springdatajpa.entity.Member;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset(seek) 페이징의 커서. 마지막으로 읽은 행의 (username, member_id) 값.
+ * 클라이언트에는 base64 문자열 토큰으로 내려준다.
+ * <p>
+ * 토큰은 "id:username" 이고, username이 null이면 구분자 없이 "id" 만 쓴다. (빈 문자열 "id:" 과 구분)
+ */
+@Getter
+@ToString
+public class MemberCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final String username;
+    private final Long id;
+
+    public MemberCursor(String username, Long id) {
+        this.username = username;
+        this.id = id;
+    }
+
+    public static MemberCursor of(Member member) {
+        return new MemberCursor(member.getUsername(), member.getId());
+    }
+
+    public String encode() {
+        String raw = username == null ? String.valueOf(id) : id + SEPARATOR + username;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int idx = raw.indexOf(SEPARATOR);
+            if (idx < 0) {
+                return new MemberCursor(null, Long.valueOf(raw));
+            }
+            return new MemberCursor(raw.substring(idx + 1), Long.valueOf(raw.substring(0, idx)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid cursor: " + token, e);
+        }
+    }
+}
@@ -15,8 +15,10 @@ public class MemberDto {
         this.teamName = teamName;
     }
 
+    // team은 지연 로딩이므로 여러 회원을 변환할 때는 batch fetch(@BatchSize)로 묶어서 초기화된다.
     public MemberDto(Member member){
         this.id = member.getId();
         this.username = member.getUsername();
+        this.teamName = member.getTeam() == null ? null : member.getTeam().getName();
     }
 }
@@ -0,0 +1,21 @@
+package com.lee.springdatajpa.dto;
+
+import com.lee.springdatajpa.entity.TeamStats;
+import lombok.Data;
+
+@Data
+public class TeamStatsDto {
+    private Long teamId;
+    private long memberCount;
+    private Integer minAge;
+    private Integer maxAge;
+    private Double averageAge;
+
+    public TeamStatsDto(TeamStats stats){
+        this.teamId = stats.getTeamId();
+        this.memberCount = stats.getMemberCount();
+        this.minAge = stats.getMinAge();
+        this.maxAge = stats.getMaxAge();
+        this.averageAge = stats.getAverageAge();
+    }
+}
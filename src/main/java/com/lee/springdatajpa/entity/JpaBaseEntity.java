@@ -5,8 +5,7 @@ import lombok.Getter;
 
 import javax.persistence.Column;
 import javax.persistence.MappedSuperclass;
-import javax.persistence.PrePersist;
-import javax.persistence.PreUpdate;
+import javax.persistence.Version;
 import java.time.LocalDateTime;
 
 @MappedSuperclass
@@ -17,17 +16,17 @@ public class JpaBaseEntity {
     private LocalDateTime createdDate;
     private LocalDateTime updatedDate;
 
-    // persist 하기 전
-    @PrePersist
-    public void prePersist(){
-        LocalDateTime now = LocalDateTime.now();
+    // 낙관적 락. 수정할 때마다 1씩 증가하고, 그 사이 다른 트랜잭션이 먼저 수정했으면 flush 때 예외
+    @Version
+    private Long version;
+
+    // 생성/수정 시각은 AuditEventListener가 채운다. (StatelessSession으로 쓸 때는 직접 호출)
+    public void created(LocalDateTime now){
         createdDate = now;
         updatedDate = now;
     }
 
-    // update 하기 전
-    @PreUpdate
-    public void preUpdate(){
-        updatedDate = LocalDateTime.now();
+    public void updated(LocalDateTime now){
+        updatedDate = now;
     }
 }
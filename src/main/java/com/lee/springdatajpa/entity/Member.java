@@ -4,17 +4,33 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member")
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
+// keyset 페이징 정렬 순서 (username desc, member_id)
+@Table(indexes = @Index(name = "idx_member_username_id", columnList = "username desc, member_id"))
+// MemberFetchPlan, @EntityGraph(Member.GRAPH_TEAM) 에서 사용
+@NamedEntityGraph(name = Member.GRAPH_TEAM, attributeNodes = @NamedAttributeNode("team"))
 public class Member extends JpaBaseEntity{
 
+    public static final String GRAPH_TEAM = "Member.team";
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @GenericGenerator(name = "member_seq_generator", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_seq"))
     @Column(name = "member_id")
     private Long id;
     private String username;
@@ -42,12 +58,24 @@ public class Member extends JpaBaseEntity{
     }
 
     // 연관관계 메서드
+    // 반대편 team.members는 DB에 반영되지 않으므로(mappedBy) 로딩하지 않는다. 로딩 전이면 추가만 예약해 둔다. (Team.memberJoined)
+    // 프록시인 팀은 초기화하지 않는다. (아직 members를 꺼내 본 적이 없으므로 맞춰줄 것도 없다)
     public void changeTeam(Team team){
+        Team previous = this.team;
         this.team = team;
-        team.getMembers().add(this);
+        if (previous != null && previous != team && Hibernate.isInitialized(previous)) {
+            ((Team) Hibernate.unproxy(previous)).memberLeft(this);
+        }
+        if (Hibernate.isInitialized(team)) {
+            ((Team) Hibernate.unproxy(team)).memberJoined(this);
+        }
     }
 
     public void changeUsername(String username){
         this.username = username;
     }
+
+    public void changeAge(int age){
+        this.age = age;
+    }
 }
@@ -4,27 +4,73 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.collection.internal.AbstractPersistentCollection;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team")
+// member.getTeam() 프록시들을 한번에 최대 200개씩 초기화 (팀은 작으므로 전역 설정보다 크게)
+@BatchSize(size = 200)
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team extends JpaBaseEntity{
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+    @GenericGenerator(name = "team_seq_generator", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "team_seq"))
     @Column(name = "team_id")
     private Long id;
     private String name;
 
+    // 여러 팀의 members 컬렉션을 한번에 50개 팀씩 초기화 (컬렉션은 행이 많으므로 전역 설정보다 작게)
+    // mappedBy 라서 DB에는 아무것도 쓰지 않으므로 바뀌어도 Team의 version을 올리지 않는다. (같은 팀에 동시에 가입해도 충돌하지 않게)
+    @OptimisticLock(excluded = true)
+    @BatchSize(size = 50)
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
     public Team(String name){
         this.name = name;
     }
+
+    /**
+     * members가 아직 로딩 전이면 로딩하지 않는다.
+     * 영속성 컨텍스트에 붙어있으면 추가를 큐에 쌓아 두었다가 나중에 로딩할 때 합치고(mappedBy 인 bag),
+     * 준영속이면 다음에 로딩할 때 DB에서 읽으므로 아무것도 하지 않는다.
+     */
+    void memberJoined(Member member){
+        if (Hibernate.isInitialized(members) || isConnected(members)) {
+            members.add(member);
+        }
+    }
+
+    // bag에서 빼려면 전부 로딩해야 하므로 이미 로딩된 경우에만 뺀다.
+    void memberLeft(Member member){
+        if (Hibernate.isInitialized(members)) {
+            members.remove(member);
+        }
+    }
+
+    private static boolean isConnected(List<Member> members){
+        if (!(members instanceof AbstractPersistentCollection)) {
+            return false;
+        }
+        SharedSessionContractImplementor session = ((AbstractPersistentCollection) members).getSession();
+        return session != null && session.isOpen() && session.isConnected();
+    }
 }
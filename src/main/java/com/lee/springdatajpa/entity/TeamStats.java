@@ -0,0 +1,55 @@
+package com.lee.springdatajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * 팀별 회원 수, 나이 통계 (읽기 모델). 팀 id가 pk이므로 조회는 pk 한번이다.
+ * Member 저장/팀 변경/나이 변경/삭제는 커밋 직전에 {@link com.lee.springdatajpa.stats.TeamStatsEventListener}가 반영하고,
+ * 엔티티를 거치지 않는 벌크 수정 뒤에는 바뀐 팀만 {@link com.lee.springdatajpa.stats.TeamStatsTracker}가 다시 집계한다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStats {
+
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+    private long memberCount;
+    // 평균은 합계로 계산한다.
+    private long ageSum;
+    // 회원이 없으면 null
+    private Integer minAge;
+    private Integer maxAge;
+
+    public TeamStats(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public Double getAverageAge() {
+        return memberCount == 0 ? null : (double) ageSum / memberCount;
+    }
+
+    public void apply(long countDelta, long ageSumDelta, Integer minAge, Integer maxAge) {
+        this.memberCount += countDelta;
+        this.ageSum += ageSumDelta;
+        this.minAge = memberCount == 0 ? null : minAge;
+        this.maxAge = memberCount == 0 ? null : maxAge;
+    }
+
+    // 다시 집계한 값으로 바꾼다.
+    public void reset(long memberCount, long ageSum, Integer minAge, Integer maxAge) {
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+    }
+}
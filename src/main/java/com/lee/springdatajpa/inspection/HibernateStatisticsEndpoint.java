@@ -0,0 +1,64 @@
+package com.lee.springdatajpa.inspection;
+
+import com.lee.springdatajpa.dto.CacheRegionStats;
+import com.lee.springdatajpa.dto.HibernateStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * /actuator/hibernate : 하이버네이트 Statistics (hibernate.generate_statistics 필요)
+ * 쿼리 플랜 캐시 hit 비율, 엔티티/컬렉션 로딩, flush, 2차 캐시/쿼리 캐시.
+ * 읽기만 한다. 통계 초기화(DELETE)는 actuator 보안 설정 없이 HTTP로 열리므로 두지 않는다.
+ */
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public HibernateStatisticsEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @ReadOperation
+    public HibernateStats statistics() {
+        Statistics statistics = hibernateStatistics();
+
+        HibernateStats stats = new HibernateStats();
+        stats.setQueryPlanCacheHitCount(statistics.getQueryPlanCacheHitCount());
+        stats.setQueryPlanCacheMissCount(statistics.getQueryPlanCacheMissCount());
+        stats.setQueryExecutionCount(statistics.getQueryExecutionCount());
+        stats.setQueryExecutionMaxTimeMs(statistics.getQueryExecutionMaxTime());
+        stats.setQueryExecutionMaxTimeQueryString(statistics.getQueryExecutionMaxTimeQueryString());
+        stats.setEntityLoadCount(statistics.getEntityLoadCount());
+        stats.setEntityFetchCount(statistics.getEntityFetchCount());
+        stats.setEntityInsertCount(statistics.getEntityInsertCount());
+        stats.setEntityUpdateCount(statistics.getEntityUpdateCount());
+        stats.setEntityDeleteCount(statistics.getEntityDeleteCount());
+        stats.setCollectionLoadCount(statistics.getCollectionLoadCount());
+        stats.setCollectionFetchCount(statistics.getCollectionFetchCount());
+        stats.setFlushCount(statistics.getFlushCount());
+        stats.setSessionOpenCount(statistics.getSessionOpenCount());
+        stats.setTransactionCount(statistics.getTransactionCount());
+        stats.setPrepareStatementCount(statistics.getPrepareStatementCount());
+        stats.setOptimisticFailureCount(statistics.getOptimisticFailureCount());
+        stats.setSecondLevelCacheHitCount(statistics.getSecondLevelCacheHitCount());
+        stats.setSecondLevelCacheMissCount(statistics.getSecondLevelCacheMissCount());
+        stats.setSecondLevelCachePutCount(statistics.getSecondLevelCachePutCount());
+        stats.setQueryCacheHitCount(statistics.getQueryCacheHitCount());
+        stats.setQueryCacheMissCount(statistics.getQueryCacheMissCount());
+        stats.setQueryCachePutCount(statistics.getQueryCachePutCount());
+
+        stats.setCacheRegions(CacheRegionStats.of(statistics));
+        return stats;
+    }
+
+    private Statistics hibernateStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
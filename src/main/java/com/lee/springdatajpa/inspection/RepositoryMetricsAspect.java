@@ -0,0 +1,195 @@
+package com.lee.springdatajpa.inspection;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Array;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.BaseStream;
+import java.util.stream.Collectors;
+
+/**
+ * repository 메서드 호출마다 지연시간, 결과 행 수, 예외를 메서드 단위로 기록하고
+ * 느린 호출은 파라미터와 함께 로그로 남긴다. (Spring Data repository, 순수 JPA repository 둘 다)
+ * 파라미터는 기본으로 타입(컬렉션은 크기)만 남긴다. 값(회원 이름, 엔티티 toString)은 log-parameter-values 를 켰을 때만 남긴다.
+ * <p>
+ * - repository.invocations : 지연시간 (tag: repository, method, outcome, exception)
+ * - repository.rows : 결과 행 수 (컬렉션, Slice/Page, Optional, 단건). Stream, 수정 결과(int)는 세지 않는다.
+ * - CompletableFuture를 돌려주는 @Async 메서드는 완료될 때 기록한다.
+ */
+@Slf4j
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private final RepositoryMetricsProperties properties;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(RepositoryMetricsProperties properties, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.properties = properties;
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    @Around("(target(com.lee.springdatajpa.repository.MemberRepository)" +
+            " || target(com.lee.springdatajpa.repository.TeamRepository)" +
+            " || target(com.lee.springdatajpa.repository.MemberJpaRepository)" +
+            " || target(com.lee.springdatajpa.repository.TeamJpaRepository))" +
+            " && !execution(* java.lang.Object.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!properties.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        String repository = repositoryName(joinPoint.getTarget().getClass());
+        String method = joinPoint.getSignature().getName();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            record(repository, method, joinPoint.getArgs(), start, null, e);
+            throw e;
+        }
+        if (result instanceof CompletionStage) {
+            ((CompletionStage<?>) result).whenComplete((value, e) ->
+                    record(repository, method, joinPoint.getArgs(), start, value, e));
+        } else {
+            record(repository, method, joinPoint.getArgs(), start, result, null);
+        }
+        return result;
+    }
+
+    private void record(String repository, String method, Object[] args, long start, Object result, Throwable error) {
+        long elapsed = System.nanoTime() - start;
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry != null) {
+            Timer.builder("repository.invocations")
+                    .description("Repository method latency")
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .tag("outcome", error == null ? "success" : "error")
+                    .tag("exception", error == null ? "none" : error.getClass().getSimpleName())
+                    .publishPercentileHistogram(properties.isHistogram())
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry)
+                    .record(Duration.ofNanos(elapsed));
+
+            long rows = error == null ? rows(result) : -1;
+            if (rows >= 0) {
+                DistributionSummary.builder("repository.rows")
+                        .description("Rows returned by repository method")
+                        .tag("repository", repository)
+                        .tag("method", method)
+                        .register(registry)
+                        .record(rows);
+            }
+        }
+
+        if (elapsed >= properties.getSlowThreshold().toNanos()) {
+            log.warn("slow repository call {}.{} took {}ms, parameters={}{}", repository, method,
+                    elapsed / 1_000_000, parameters(args), error == null ? "" : ", exception=" + error);
+        }
+    }
+
+    // 결과 행 수. 셀 수 없으면 -1
+    private long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result.getClass().isArray()) {
+            return Array.getLength(result);
+        }
+        if (result instanceof Number || result instanceof Boolean || result instanceof BaseStream || result instanceof Iterable) {
+            return -1;
+        }
+        return 1;
+    }
+
+    private String parameters(Object[] args) {
+        return Arrays.stream(args)
+                .map(arg -> properties.isLogParameterValues() ? value(arg) : type(arg))
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private String type(Object arg) {
+        if (arg == null) {
+            return "null";
+        }
+        String type = arg.getClass().getSimpleName();
+        if (arg instanceof Collection) {
+            return type + "(size=" + ((Collection<?>) arg).size() + ")";
+        }
+        if (arg instanceof Map) {
+            return type + "(size=" + ((Map<?, ?>) arg).size() + ")";
+        }
+        if (arg.getClass().isArray()) {
+            return type + "(length=" + Array.getLength(arg) + ")";
+        }
+        return type;
+    }
+
+    // 컬렉션은 전체를 문자열로 만들지 않고 최대 길이까지만 원소를 붙인다. (saveAllBatched 처럼 수백만 건일 수 있다)
+    private String value(Object arg) {
+        int max = properties.getMaxParameterLength();
+        if (arg instanceof Collection) {
+            StringBuilder builder = new StringBuilder(type(arg)).append('[');
+            int start = builder.length();
+            for (Object element : (Collection<?>) arg) {
+                if (builder.length() - start >= max) {
+                    return builder.append("...]").toString();
+                }
+                if (builder.length() > start) {
+                    builder.append(", ");
+                }
+                builder.append(abbreviate(String.valueOf(element), max));
+            }
+            return builder.append(']').toString();
+        }
+        if (arg != null && arg.getClass().isArray()) {
+            return type(arg);
+        }
+        return abbreviate(String.valueOf(arg), max);
+    }
+
+    private static String abbreviate(String value, int max) {
+        return value.length() > max ? value.substring(0, max) + "..." : value;
+    }
+
+    // Spring Data repository는 프록시이므로 구현한 repository 인터페이스 이름을 쓴다.
+    private String repositoryName(Class<?> targetClass) {
+        return repositoryNames.computeIfAbsent(targetClass, type -> {
+            for (Class<?> candidate : ClassUtils.getAllInterfacesForClassAsSet(type)) {
+                if (Repository.class.isAssignableFrom(candidate) && !candidate.getName().startsWith("org.springframework.")) {
+                    return candidate.getSimpleName();
+                }
+            }
+            return ClassUtils.getUserClass(type).getSimpleName();
+        });
+    }
+}
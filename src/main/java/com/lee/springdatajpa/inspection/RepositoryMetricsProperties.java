@@ -0,0 +1,30 @@
+package com.lee.springdatajpa.inspection;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// repository.metrics.* 설정
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "repository.metrics")
+public class RepositoryMetricsProperties {
+
+    private boolean enabled = true;
+
+    // 이 시간보다 오래 걸린 repository 호출은 파라미터와 함께 경고 로그
+    private Duration slowThreshold = Duration.ofMillis(200);
+
+    // 느린 호출 로그에 파라미터 값을 남긴다. 끄면(기본) 타입과 컬렉션 크기만 남긴다. (회원 이름 등 개인정보가 로그에 남지 않게)
+    private boolean logParameterValues = false;
+
+    // 파라미터 값을 남길 때 파라미터 하나의 최대 길이
+    private int maxParameterLength = 200;
+
+    // 지연시간 히스토그램 버킷 발행 (Prometheus 등에서 percentile 계산)
+    private boolean histogram = true;
+}
@@ -0,0 +1,56 @@
+package com.lee.springdatajpa.inspection;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * HTTP 요청 하나에서 실행된 statement 수를 센다. (이름은 "GET /members/{id}" 처럼 URI 패턴 기준)
+ * 매칭된 핸들러가 없는 요청은 URI 대신 UNKNOWN으로 기록한다. (스캐너가 찔러보는 URL마다 메트릭 태그가 생기지 않게)
+ * <p>
+ * FAIL 모드에서 응답 본문을 쓰기 전에는 {@link StatementLimitResponseAdvice}가 막는다.
+ * 여기서는 응답이 아직 커밋되지 않았을 때만 예외를 던지고, 이미 나간 응답은 오류 로그만 남긴다.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatementCountFilter extends OncePerRequestFilter {
+
+    static final String STATS_ATTRIBUTE = StatementCountFilter.class.getName() + ".stats";
+    static final String UNKNOWN = "UNKNOWN";
+
+    private final StatementInspector statementInspector;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !statementInspector.getProperties().isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementStats stats = statementInspector.open(UNKNOWN);
+        request.setAttribute(STATS_ATTRIBUTE, stats);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, response);
+            completed = true;
+        } finally {
+            statementInspector.close(stats);
+            stats.rename(requestName(request));
+            statementInspector.report("request", stats, statementInspector.getProperties().getMaxStatementsPerRequest(),
+                    completed && !response.isCommitted());
+        }
+    }
+
+    static String requestName(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? UNKNOWN : request.getMethod() + " " + pattern;
+    }
+}
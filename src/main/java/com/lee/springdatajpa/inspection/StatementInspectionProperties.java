@@ -0,0 +1,28 @@
+package com.lee.springdatajpa.inspection;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+// sql.inspection.* 설정
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sql.inspection")
+public class StatementInspectionProperties {
+
+    public enum Mode { WARN, FAIL }
+
+    private boolean enabled = true;
+
+    // HTTP 요청 하나 / 트랜잭션 하나에서 허용하는 statement 개수
+    private int maxStatementsPerRequest = 30;
+    private int maxStatementsPerTransaction = 30;
+
+    // 파라미터만 다른 같은 SQL이 이 횟수 이상 실행되면 N+1로 본다.
+    private int repeatedStatementThreshold = 10;
+
+    // WARN: 로그만 남김, FAIL: 예외를 던져서 요청/커밋을 실패시킴 (테스트, 개발환경용)
+    private Mode mode = Mode.WARN;
+}
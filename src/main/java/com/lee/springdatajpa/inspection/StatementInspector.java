@@ -0,0 +1,222 @@
+package com.lee.springdatajpa.inspection;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * p6spy 리스너로 실행되는 모든 statement를 받아서
+ * HTTP 요청({@link StatementCountFilter}), 트랜잭션, capture 블록 단위로 센다.
+ * <p>
+ * 범위가 끝날 때 개수를 Micrometer에 기록하고, 허용 개수를 넘거나
+ * 같은 조회 SQL이 반복(N+1 의심)되면 설정(mode)에 따라 경고 로그를 남기거나 예외를 던진다.
+ * <p>
+ * - jdbc.statements : 실행된 전체 statement 수
+ * - jdbc.statements.per.request / jdbc.statements.per.transaction : 범위별 statement 수 분포
+ * - jdbc.statements.violations : 허용 개수 초과 / N+1 의심 횟수
+ */
+@Slf4j
+@Component
+public class StatementInspector extends SimpleJdbcEventListener {
+
+    private final StatementInspectionProperties properties;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final ThreadLocal<Deque<StatementStats>> scopes = ThreadLocal.withInitial(ArrayDeque::new);
+
+    // p6spy DataSource가 이 리스너에 의존하므로 MeterRegistry는 처음 쓸 때 가져온다.
+    private volatile MeterRegistry meterRegistry;
+    private volatile Counter statementCounter;
+
+    public StatementInspector(StatementInspectionProperties properties, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.properties = properties;
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String sql = statementInformation.getSql();
+        Counter counter = statementCounter();
+        if (counter != null) {
+            counter.increment();
+        }
+        for (StatementStats stats : scopes.get()) {
+            stats.record(sql);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionScope().stats.record(sql);
+        }
+    }
+
+    /**
+     * block 안에서 현재 스레드가 실행한 statement를 센다. (테스트에서 N+1 확인용)
+     */
+    public StatementStats capture(Runnable block) {
+        return capture("capture", () -> {
+            block.run();
+            return null;
+        }).stats;
+    }
+
+    public <T> Captured<T> capture(String name, Supplier<T> block) {
+        StatementStats stats = open(name);
+        try {
+            T result = block.get();
+            return new Captured<>(result, stats);
+        } finally {
+            close(stats);
+        }
+    }
+
+    StatementStats open(String name) {
+        StatementStats stats = new StatementStats(name);
+        scopes.get().push(stats);
+        return stats;
+    }
+
+    void close(StatementStats stats) {
+        Deque<StatementStats> deque = scopes.get();
+        deque.remove(stats);
+        if (deque.isEmpty()) {
+            scopes.remove();
+        }
+    }
+
+    /**
+     * 허용 개수를 넘거나 N+1이 의심되면 mode와 상관없이 예외를 던진다.
+     */
+    public void assertWithinLimits(StatementStats stats, int maxStatements) {
+        List<String> violations = violations(stats, maxStatements);
+        if (!violations.isEmpty()) {
+            throw new StatementThresholdExceededException(stats.getName() + ": " + String.join(", ", violations));
+        }
+    }
+
+    /**
+     * 범위가 끝날 때 기록한다. FAIL 모드여도 enforce가 false면(응답이 이미 나갔거나 트랜잭션이 끝난 뒤) 예외 대신 오류 로그를 남긴다.
+     */
+    void report(String scope, StatementStats stats, int maxStatements, boolean enforce) {
+        MeterRegistry registry = meterRegistry();
+        if (registry != null) {
+            DistributionSummary.builder("jdbc.statements.per." + scope)
+                    .description("JDBC statements executed per " + scope)
+                    .tag("name", stats.getName())
+                    .register(registry)
+                    .record(stats.getTotal());
+        }
+
+        List<String> violations = violations(stats, maxStatements);
+        if (violations.isEmpty()) {
+            return;
+        }
+        if (registry != null) {
+            registry.counter("jdbc.statements.violations", "scope", scope, "name", stats.getName()).increment();
+        }
+        String message = scope + " [" + stats.getName() + "] " + String.join(", ", violations);
+        if (properties.getMode() == StatementInspectionProperties.Mode.FAIL) {
+            if (enforce) {
+                throw new StatementThresholdExceededException(message);
+            }
+            log.error("statement inspection: {}", message);
+            return;
+        }
+        log.warn("statement inspection: {}", message);
+    }
+
+    StatementInspectionProperties getProperties() {
+        return properties;
+    }
+
+    private List<String> violations(StatementStats stats, int maxStatements) {
+        List<String> violations = new ArrayList<>();
+        if (stats.getTotal() > maxStatements) {
+            violations.add("executed " + stats.getTotal() + " statements (max " + maxStatements + ")");
+        }
+        Map<String, Integer> repeated = stats.getRepeatedStatements(properties.getRepeatedStatementThreshold());
+        repeated.forEach((sql, count) -> violations.add("N+1 suspected, executed " + count + " times: " + sql));
+        return violations;
+    }
+
+    // 현재 트랜잭션에 등록된 TransactionScope를 찾고 없으면 등록한다.
+    // REQUIRES_NEW로 트랜잭션이 바뀌면 synchronization 목록도 바뀌므로 트랜잭션마다 따로 센다.
+    private TransactionScope transactionScope() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof TransactionScope) {
+                return (TransactionScope) synchronization;
+            }
+        }
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        TransactionScope scope = new TransactionScope(new StatementStats(name == null ? "unnamed" : name));
+        TransactionSynchronizationManager.registerSynchronization(scope);
+        return scope;
+    }
+
+    private MeterRegistry meterRegistry() {
+        if (meterRegistry == null) {
+            meterRegistry = meterRegistryProvider.getIfAvailable();
+        }
+        return meterRegistry;
+    }
+
+    private Counter statementCounter() {
+        if (statementCounter == null) {
+            MeterRegistry registry = meterRegistry();
+            if (registry != null) {
+                statementCounter = Counter.builder("jdbc.statements")
+                        .description("JDBC statements executed")
+                        .register(registry);
+            }
+        }
+        return statementCounter;
+    }
+
+    private class TransactionScope implements TransactionSynchronization {
+
+        private final StatementStats stats;
+
+        TransactionScope(StatementStats stats) {
+            this.stats = stats;
+        }
+
+        // afterCompletion에서 던진 예외는 무시되므로 FAIL 모드에서도 로그로 남긴다.
+        @Override
+        public void afterCompletion(int status) {
+            report("transaction", stats, properties.getMaxStatementsPerTransaction(), false);
+        }
+    }
+
+    public static class Captured<T> {
+        private final T result;
+        private final StatementStats stats;
+
+        Captured(T result, StatementStats stats) {
+            this.result = result;
+            this.stats = stats;
+        }
+
+        public T getResult() {
+            return result;
+        }
+
+        public StatementStats getStats() {
+            return stats;
+        }
+    }
+}
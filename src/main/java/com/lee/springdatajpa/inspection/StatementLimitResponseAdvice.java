@@ -0,0 +1,48 @@
+package com.lee.springdatajpa.inspection;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+
+// FAIL 모드: 응답 본문을 쓰기 전에(응답이 커밋되기 전에) 요청의 statement 수를 확인해서 넘었으면 본문 대신 오류 응답이 나가게 한다.
+@ControllerAdvice
+@RequiredArgsConstructor
+public class StatementLimitResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private final StatementInspector statementInspector;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        StatementInspectionProperties properties = statementInspector.getProperties();
+        return properties.isEnabled() && properties.getMode() == StatementInspectionProperties.Mode.FAIL;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest) {
+            HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+            // 이미 실패시킨 요청의 오류 응답(/error)은 그대로 내보낸다.
+            if (servletRequest.getDispatcherType() == DispatcherType.ERROR) {
+                return body;
+            }
+            Object stats = servletRequest.getAttribute(StatementCountFilter.STATS_ATTRIBUTE);
+            if (stats instanceof StatementStats) {
+                ((StatementStats) stats).rename(StatementCountFilter.requestName(servletRequest));
+                statementInspector.assertWithinLimits((StatementStats) stats,
+                        statementInspector.getProperties().getMaxStatementsPerRequest());
+            }
+        }
+        return body;
+    }
+}
@@ -0,0 +1,83 @@
+package com.lee.springdatajpa.inspection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * 한 범위(HTTP 요청, 트랜잭션, capture 블록) 안에서 실행된 statement 통계.
+ * SQL은 바인딩 값을 ? 로 바꾼 형태로 모으므로 파라미터만 다른 SQL은 같은 SQL로 센다.
+ * <p>
+ * N+1 의심(반복)은 조회(select)만 본다. insert/update는 JDBC batch(executeBatch 한번이 한 statement)로,
+ * 시퀀스는 pooled 할당(increment_size마다 한번)으로 같은 SQL이 반복되는 게 정상이다.
+ */
+public class StatementStats {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private volatile String name;
+    private final AtomicInteger total = new AtomicInteger();
+    private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+    public StatementStats(String name) {
+        this.name = name;
+    }
+
+    void record(String sql) {
+        total.incrementAndGet();
+        if (sql != null) {
+            counts.computeIfAbsent(normalize(sql), key -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void rename(String name) {
+        this.name = name;
+    }
+
+    public int getTotal() {
+        return total.get();
+    }
+
+    public int getCount(String sql) {
+        AtomicInteger count = counts.get(normalize(sql));
+        return count == null ? 0 : count.get();
+    }
+
+    // threshold 번 이상 반복된 조회 SQL (N+1 의심)
+    public Map<String, Integer> getRepeatedStatements(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        counts.forEach((sql, count) -> {
+            if (count.get() >= threshold && isQuery(sql)) {
+                repeated.put(sql, count.get());
+            }
+        });
+        return repeated;
+    }
+
+    // select nextval('seq') 처럼 select로 시작하는 시퀀스 호출도 뺀다.
+    static boolean isQuery(String normalizedSql) {
+        boolean query = normalizedSql.regionMatches(true, 0, "select", 0, 6)
+                || normalizedSql.regionMatches(true, 0, "with", 0, 4);
+        String lower = normalizedSql.toLowerCase();
+        return query && !lower.contains("nextval") && !lower.contains("next value for");
+    }
+
+    static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    @Override
+    public String toString() {
+        return "StatementStats{name=" + name + ", total=" + total + "}";
+    }
+}
@@ -0,0 +1,8 @@
+package com.lee.springdatajpa.inspection;
+
+public class StatementThresholdExceededException extends RuntimeException {
+
+    public StatementThresholdExceededException(String message) {
+        super(message);
+    }
+}
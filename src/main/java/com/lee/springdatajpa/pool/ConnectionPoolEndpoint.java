@@ -0,0 +1,88 @@
+package com.lee.springdatajpa.pool;
+
+import com.lee.springdatajpa.dto.ConnectionPoolStats;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /actuator/connectionpool : HikariCP 풀마다 사용 중/유휴/대기 스레드 수와 설정,
+ * 커넥션 획득 대기 시간(풀 부족)과 사용 시간(느린 쿼리), 타임아웃 수.
+ * replica 라우팅을 켜면 primary, replica 풀이 따로 보인다.
+ */
+@Component
+@Endpoint(id = "connectionpool")
+public class ConnectionPoolEndpoint {
+
+    private final ObjectProvider<DataSource> dataSources;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public ConnectionPoolEndpoint(ObjectProvider<DataSource> dataSources, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.dataSources = dataSources;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, ConnectionPoolStats> pools() {
+        Map<String, ConnectionPoolStats> result = new TreeMap<>();
+        dataSources.orderedStream().forEach(dataSource -> {
+            // p6spy가 감싼 DataSource 안의 Hikari 풀. 라우팅 DataSource는 풀이 아니므로 건너뛴다.
+            HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+            if (hikari != null && !result.containsKey(hikari.getPoolName())) {
+                result.put(hikari.getPoolName(), stats(hikari));
+            }
+        });
+        return result;
+    }
+
+    private ConnectionPoolStats stats(HikariDataSource hikari) {
+        ConnectionPoolStats stats = new ConnectionPoolStats();
+        stats.setPool(hikari.getPoolName());
+        stats.setMaximumPoolSize(hikari.getMaximumPoolSize());
+        stats.setMinimumIdle(hikari.getMinimumIdle());
+        stats.setConnectionTimeoutMs(hikari.getConnectionTimeout());
+        stats.setLeakDetectionThresholdMs(hikari.getLeakDetectionThreshold());
+
+        // 첫 커넥션을 얻기 전에는 풀이 아직 없다.
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool != null) {
+            stats.setActive(pool.getActiveConnections());
+            stats.setIdle(pool.getIdleConnections());
+            stats.setTotal(pool.getTotalConnections());
+            stats.setThreadsAwaitingConnection(pool.getThreadsAwaitingConnection());
+        }
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Counter timeouts = registry.find("hikaricp.connections.timeout").tag("pool", hikari.getPoolName()).counter();
+            Timer acquire = registry.find("hikaricp.connections.acquire").tag("pool", hikari.getPoolName()).timer();
+            Timer usage = registry.find("hikaricp.connections.usage").tag("pool", hikari.getPoolName()).timer();
+            if (timeouts != null) {
+                stats.setConnectionTimeouts(timeouts.count());
+            }
+            if (acquire != null) {
+                stats.setAcquireCount(acquire.count());
+                stats.setAcquireMeanMs(acquire.mean(TimeUnit.MILLISECONDS));
+                stats.setAcquireMaxMs(acquire.max(TimeUnit.MILLISECONDS));
+            }
+            if (usage != null) {
+                stats.setUsageMeanMs(usage.mean(TimeUnit.MILLISECONDS));
+                stats.setUsageMaxMs(usage.max(TimeUnit.MILLISECONDS));
+            }
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,32 @@
+package com.lee.springdatajpa.repository;
+
+import com.lee.springdatajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+/**
+ * 화면(컨트롤러 유스케이스)마다 Member와 같이 가져올 연관 엔티티.
+ * Member의 @NamedEntityGraph를 fetch graph 힌트로 건다. (@EntityGraph 와 같은 방식)
+ * open-in-view를 껐으므로 트랜잭션이 끝난 뒤에 쓸 연관 엔티티는 여기서 정한 것만 초기화되어 있다.
+ */
+public enum MemberFetchPlan {
+
+    // 회원 컬럼만. team은 초기화되지 않은 프록시
+    MEMBER(null),
+    // 회원 + 팀 (left outer join)
+    MEMBER_WITH_TEAM(Member.GRAPH_TEAM);
+
+    private final String entityGraph;
+
+    MemberFetchPlan(String entityGraph) {
+        this.entityGraph = entityGraph;
+    }
+
+    <T> TypedQuery<T> apply(TypedQuery<T> query, EntityManager em) {
+        if (entityGraph != null) {
+            query.setHint(org.hibernate.jpa.QueryHints.HINT_FETCHGRAPH, em.getEntityGraph(entityGraph));
+        }
+        return query;
+    }
+}
@@ -1,12 +1,16 @@
 package com.lee.springdatajpa.repository;
 
+import com.lee.springdatajpa.dto.MemberCursor;
 import com.lee.springdatajpa.entity.Member;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Repository
 public class MemberJpaRepository {
@@ -27,6 +31,20 @@ public class MemberJpaRepository {
         return em.createQuery("select m from Member m", Member.class).getResultList();
     }
 
+    // 전체를 List로 올리지 않고 fetchSize 단위로 읽으면서 변환한다.
+    // 변환이 끝난 엔티티는 바로 detach 하므로 영속성 컨텍스트가 커지지 않는다. (트랜잭션 안에서 사용, close 필수)
+    public <R> Stream<R> streamAll(int fetchSize, Function<Member, R> mapper){
+        return em.createQuery("select m from Member m", Member.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream()
+                .map(member -> {
+                    R result = mapper.apply(member);
+                    em.detach(member);
+                    return result;
+                });
+    }
+
     public Optional<Member> findById(Long id){
         Member member = em.find(Member.class, id);
         return Optional.ofNullable(member);
@@ -55,6 +73,33 @@ public class MemberJpaRepository {
                 .getResultList();
     }
 
+    // offset 대신 마지막으로 읽은 (username, id) 다음부터 읽는다. 첫 페이지는 cursor가 null
+    // username이 null인 회원은 맨 뒤(nulls last)에 id 순서로 온다.
+    public List<Member> findByKeyset(int age, MemberCursor cursor, int limit){
+        if(cursor == null){
+            return em.createQuery("select m from Member m where m.age = :age order by m.username desc nulls last, m.id asc", Member.class)
+                    .setParameter("age", age)
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
+        if(cursor.getUsername() == null){
+            return em.createQuery("select m from Member m where m.age = :age and m.username is null and m.id > :id" +
+                            " order by m.id asc", Member.class)
+                    .setParameter("age", age)
+                    .setParameter("id", cursor.getId())
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
+        return em.createQuery("select m from Member m where m.age = :age" +
+                        " and (m.username < :username or m.username is null or (m.username = :username and m.id > :id))" +
+                        " order by m.username desc nulls last, m.id asc", Member.class)
+                .setParameter("age", age)
+                .setParameter("username", cursor.getUsername())
+                .setParameter("id", cursor.getId())
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
     public long totalCount(int age){
         return em.createQuery("select count(m) from Member m where m.age = :age", Long.class)
                 .setParameter("age",age)
@@ -62,7 +107,7 @@ public class MemberJpaRepository {
     }
 
     public int bulkAgePlus(int age){
-        return em.createQuery("update Member m set m.age = m.age+1 where m.age >= :age")
+        return em.createQuery("update versioned Member m set m.age = m.age+1 where m.age >= :age")
                 .setParameter("age", age)
                 .executeUpdate();
     }
@@ -1,20 +1,30 @@
 package com.lee.springdatajpa.repository;
 
+import com.lee.springdatajpa.config.AsyncRepositoryConfig;
+import com.lee.springdatajpa.dto.CursorPage;
+import com.lee.springdatajpa.dto.MemberCursor;
 import com.lee.springdatajpa.dto.MemberDto;
 import com.lee.springdatajpa.entity.Member;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.LockModeType;
 import javax.persistence.QueryHint;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
-public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom {
+public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom, MemberStatelessRepository {
+
+    String USERNAME_QUERY_CACHE_REGION = "member-username";
 
     List<Member> findByUsernameAndAgeGreaterThan(String username, int age);
 
@@ -29,6 +39,25 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @Query("select new com.lee.springdatajpa.dto.MemberDto(m.id, m.username, t.name) from Member m join m.team t")
     List<MemberDto> findMemberDto();
 
+    // 결과를 List로 모으지 않고 커서(forward-only)로 한 행씩 읽는다. DTO라서 영속성 컨텍스트에 쌓이지 않음
+    // Stream은 트랜잭션 안에서 사용하고 반드시 close 해야 한다.
+    @QueryHints(value = {
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select new com.lee.springdatajpa.dto.MemberDto(m.id, m.username, t.name) from Member m left join m.team t")
+    Stream<MemberDto> streamMemberDto();
+
+    // 비동기 조회. repositoryExecutor 스레드에서 실행되므로 호출한 쪽 트랜잭션/영속성 컨텍스트와 무관하다.
+    @Async(AsyncRepositoryConfig.REPOSITORY_EXECUTOR)
+    @Query("select new com.lee.springdatajpa.dto.MemberDto(m.id, m.username, t.name) from Member m left join m.team t where m.id = :id")
+    CompletableFuture<MemberDto> findMemberDtoAsync(@Param("id") Long id);
+
+    @Async(AsyncRepositoryConfig.REPOSITORY_EXECUTOR)
+    default CompletableFuture<Page<MemberDto>> findMemberDtoPageAsync(Pageable pageable) {
+        return CompletableFuture.completedFuture(findMemberDtoPage(pageable));
+    }
+
     @Query("select m from Member m where m.username in :names")
     List<Member> findByNames(@Param("names") Collection<String> names);
 
@@ -36,6 +65,11 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     List<Member> findListByUsername(String username);
 
     // 단건
+    // 자주 조회되므로 쿼리 캐시 사용 (member-username 리전). 벌크 수정(bulkAgePlus)하면 Hibernate가 무효화한다.
+    @QueryHints(value = {
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = MemberRepository.USERNAME_QUERY_CACHE_REGION)
+    })
     Member findMemberByUsername(String username);
 
     // Optional 단건
@@ -47,8 +81,40 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
 
     Slice<Member> findSliceByAge(int age, Pageable pageable);
 
+    // keyset(seek) 페이징: offset 없이 where 조건으로 다음 페이지를 찾는다. (username desc, member_id)
+    // username이 null인 회원은 DB마다 정렬 위치가 다르므로 맨 뒤로 고정한다.
+    @Query("select m from Member m order by m.username desc nulls last, m.id asc")
+    Slice<Member> findKeysetFirst(Pageable pageable);
+
+    // null은 < 비교에 걸리지 않으므로 뒤에 오는 null username 회원을 따로 포함한다.
+    @Query("select m from Member m where m.username < :username or m.username is null or (m.username = :username and m.id > :id)" +
+            " order by m.username desc nulls last, m.id asc")
+    Slice<Member> findKeysetAfter(@Param("username") String username, @Param("id") Long id, Pageable pageable);
+
+    // 커서가 이미 null username 구간이면 남은 것은 id가 더 큰 null username 회원뿐이다.
+    @Query("select m from Member m where m.username is null and m.id > :id order by m.id asc")
+    Slice<Member> findKeysetAfterNullUsername(@Param("id") Long id, Pageable pageable);
+
+    // 항상 0번 페이지만 조회하므로 offset이 붙지 않는다.
+    default CursorPage<Member> findKeysetPage(MemberCursor cursor, int size){
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<Member> slice;
+        if (cursor == null) {
+            slice = findKeysetFirst(pageable);
+        } else if (cursor.getUsername() == null) {
+            slice = findKeysetAfterNullUsername(cursor.getId(), pageable);
+        } else {
+            slice = findKeysetAfter(cursor.getUsername(), cursor.getId(), pageable);
+        }
+        List<Member> content = slice.getContent();
+        String nextCursor = slice.hasNext() ? MemberCursor.of(content.get(content.size() - 1)).encode() : null;
+        return new CursorPage<>(content, nextCursor);
+    }
+
+    @Transactional
     @Modifying(clearAutomatically = true)
-    @Query("update Member m set m.age = m.age + 1 where m.age >= :age")
+    // versioned : 벌크 수정도 version을 올려서 수정 전 값을 들고 있던 낙관적 락 수정이 덮어쓰지 못하게 한다.
+    @Query("update versioned Member m set m.age = m.age + 1 where m.age >= :age")
     int bulkAgePlus(@Param("age") int age);
 
     @Query("select m from Member m left join fetch m.team")
@@ -66,6 +132,8 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @EntityGraph(attributePaths = {"team"})
     List<Member> findEntityGraphByUsername(@Param("username") String username);
 
+    // 읽기 전용 트랜잭션이므로 replica가 설정되어 있으면 replica에서 읽는다.
+    @Transactional(readOnly = true)
     @QueryHints(value = @QueryHint(name = "org.hibernate.readOnly", value = "true"))
     Member findReadOnlyByUsername(String username);
 
@@ -1,9 +1,39 @@
 package com.lee.springdatajpa.repository;
 
+import com.lee.springdatajpa.dto.MemberDto;
 import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.repository.bulk.BulkUpdateOptions;
+import com.lee.springdatajpa.repository.bulk.BulkUpdateResult;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface MemberRepositoryCustom {
     List<Member> findMemberCustom();
+
+    // fetchPlan에 정한 연관 엔티티까지 한번에 조회. 2차 캐시를 거치지 않고 항상 쿼리한다.
+    Optional<Member> findById(Long id, MemberFetchPlan fetchPlan);
+
+    // batchSize 단위로 JDBC batch insert 후 영속성 컨텍스트를 비운다. 저장한 건수를 반환
+    long saveAllBatched(Iterable<Member> members, int batchSize);
+
+    // count 쿼리 결과를 PageCountCache에 캐시하는 페이징
+    Page<Member> findByAgeWithCachedCount(int age, Pageable pageable);
+
+    Page<Member> findAllWithCachedCount(Pageable pageable);
+
+    // id, username, team.name 만 DTO로 조회하는 페이징 (count 캐시 사용)
+    Page<MemberDto> findMemberDtoPage(Pageable pageable);
+
+    // bulkAgePlus를 pk 범위로 나눠서 청크마다 커밋한다. (영속성 컨텍스트는 변경된 엔티티만 detach)
+    // 청크가 호출한 트랜잭션의 락을 기다리지 않도록 읽기/쓰기 트랜잭션 안에서 호출하면 거부한다.
+    BulkUpdateResult bulkAgePlusInChunks(int age, BulkUpdateOptions options);
+
+    // username 회원들의 나이를 delta 만큼 수정. @Version 충돌시 backoff 후 재시도 (트랜잭션 밖에서 호출)
+    int addAgeOptimistic(String username, int delta);
+
+    // findLockByUsername 처럼 select ... for update 로 잠그고 수정
+    int addAgePessimistic(String username, int delta);
 }
@@ -1,19 +1,154 @@
 package com.lee.springdatajpa.repository;
 
+import com.lee.springdatajpa.audit.AuditContext;
+import com.lee.springdatajpa.dto.MemberDto;
 import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.repository.bulk.BulkUpdateOptions;
+import com.lee.springdatajpa.repository.bulk.BulkUpdateResult;
+import com.lee.springdatajpa.repository.bulk.ChunkedBulkUpdater;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
 
 // Class 이름을 MemberRepository + Impl 규칙으로 조합해야함.. (관례)
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     private final EntityManager em;
+    private final PageCountCache pageCountCache;
+    private final ChunkedBulkUpdater chunkedBulkUpdater;
+    private final OptimisticRetryTemplate optimisticRetryTemplate;
+    private final AuditContext auditContext;
 
     @Override
     public List<Member> findMemberCustom() {
         return em.createQuery("select m from Member m").getResultList();
     }
+
+    @Override
+    public Optional<Member> findById(Long id, MemberFetchPlan fetchPlan) {
+        TypedQuery<Member> query = em.createQuery("select m from Member m where m.id = :id", Member.class)
+                .setParameter("id", id);
+        // pk 조건이라 많아야 한 건이다. getResultStream은 닫지 않으면 트랜잭션 밖에서 커서가 남는다.
+        return fetchPlan.apply(query, em).getResultList().stream().findFirst();
+    }
+
+    // batchSize 마다 flush(insert 묶음 전송) + clear 해서 영속성 컨텍스트가 계속 커지지 않게 한다.
+    // clear 하므로 같은 트랜잭션에서 먼저 조회한 엔티티들도 준영속 상태가 된다.
+    // 대량 적재이므로 audit.bulk-import=false 이면 auditing 없이 저장한다.
+    @Override
+    @Transactional
+    public long saveAllBatched(Iterable<Member> members, int batchSize) {
+        Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+        return auditContext.bulkImport(() -> persistBatched(members, batchSize));
+    }
+
+    private long persistBatched(Iterable<Member> members, int batchSize) {
+        Session session = em.unwrap(Session.class);
+        Integer previousBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+        try {
+            long count = 0;
+            for (Member member : members) {
+                em.persist(member);
+                if (++count % batchSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.flush();
+            em.clear();
+            return count;
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+        }
+    }
+
+    @Override
+    public Page<Member> findByAgeWithCachedCount(int age, Pageable pageable) {
+        return findPage("select m from Member m where m.age = :age", Member.class,
+                "select count(m) from Member m where m.age = :age",
+                Collections.singletonMap("age", age), pageable);
+    }
+
+    @Override
+    public Page<Member> findAllWithCachedCount(Pageable pageable) {
+        return findPage("select m from Member m", Member.class, "select count(m) from Member m",
+                Collections.emptyMap(), pageable);
+    }
+
+    // 엔티티를 만들지 않고 필요한 컬럼만 DTO로 바로 조회 (영속성 컨텍스트, 스냅샷 없음)
+    @Override
+    public Page<MemberDto> findMemberDtoPage(Pageable pageable) {
+        return findPage("select new com.lee.springdatajpa.dto.MemberDto(m.id, m.username, t.name)" +
+                        " from Member m left join m.team t", MemberDto.class,
+                "select count(m) from Member m", Collections.emptyMap(), pageable);
+    }
+
+    @Override
+    public BulkUpdateResult bulkAgePlusInChunks(int age, BulkUpdateOptions options) {
+        return chunkedBulkUpdater.execute("update versioned Member m set m.age = m.age + 1 where m.age >= :age",
+                Collections.singletonMap("age", age), options);
+    }
+
+    @Override
+    public int addAgeOptimistic(String username, int delta) {
+        return optimisticRetryTemplate.execute(() -> addAge(findByUsername(username).getResultList(), delta));
+    }
+
+    @Override
+    @Transactional
+    public int addAgePessimistic(String username, int delta) {
+        return addAge(findByUsername(username).setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList(), delta);
+    }
+
+    private TypedQuery<Member> findByUsername(String username) {
+        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", username);
+    }
+
+    private int addAge(List<Member> members, int delta) {
+        members.forEach(member -> member.changeAge(member.getAge() + delta));
+        return members.size();
+    }
+
+    private <T> Page<T> findPage(String query, Class<T> resultType, String countQuery, Map<String, ?> params, Pageable pageable) {
+        TypedQuery<T> contentQuery = em.createQuery(QueryUtils.applySorting(query, pageable.getSort(), "m"), resultType);
+        params.forEach(contentQuery::setParameter);
+        if (pageable.isPaged()) {
+            contentQuery.setFirstResult((int) pageable.getOffset());
+            contentQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<T> content = contentQuery.getResultList();
+
+        LongSupplier counter = () -> {
+            TypedQuery<Long> count = em.createQuery(countQuery, Long.class);
+            params.forEach(count::setParameter);
+            return count.getSingleResult();
+        };
+
+        // 마지막 페이지처럼 content만으로 total을 알 수 있으면 count 자체를 하지 않는다.
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            if (pageCountCache.getMode() == PageCountCache.Mode.ESTIMATED) {
+                // 꽉 찬 페이지이므로 다음 페이지가 있다고 보고 +1
+                long lowerBound = pageable.getOffset() + content.size() + 1;
+                return pageCountCache.estimate(countQuery, params, counter, lowerBound);
+            }
+            return pageCountCache.count(countQuery, params, counter);
+        });
+    }
 }
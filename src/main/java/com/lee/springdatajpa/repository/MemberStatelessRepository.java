@@ -0,0 +1,26 @@
+package com.lee.springdatajpa.repository;
+
+import com.lee.springdatajpa.entity.Member;
+
+import java.util.function.Consumer;
+
+/**
+ * StatelessSession으로 읽고 쓰는 Member repository 조각. (MemberRepository에 같이 붙는다)
+ * 영속성 컨텍스트, 변경 감지, cascade, 2차 캐시, 엔티티 콜백(@PrePersist 등)이 없으므로 대량 작업에서 메모리가 늘지 않는다.
+ * 스프링 트랜잭션의 커넥션을 같이 쓰므로 커밋/롤백도 같이 된다.
+ * 쓰기는 팀 통계 증감, 수정한 회원의 2차 캐시, member 쿼리 캐시와 바뀐 나이의 count 캐시 무효화를 직접 한다.
+ */
+public interface MemberStatelessRepository {
+
+    // 전체 회원을 fetchSize 단위 커서로 읽어서 action에 넘긴다. team은 fetch join. 읽은 건수를 반환
+    long scanAllStateless(int fetchSize, Consumer<Member> action);
+
+    // member_id 가 [fromId, toId) 인 회원만. ParallelMemberScanner가 범위마다 다른 스레드(트랜잭션, 커넥션)에서 호출한다.
+    long scanRangeStateless(long fromId, long toId, int fetchSize, Consumer<Member> action);
+
+    // batchSize 단위로 JDBC batch insert. 생성/수정 시각은 JpaBaseEntity와 같이 채운다.
+    long insertAllStateless(Iterable<Member> members, int batchSize);
+
+    // 준영속 회원들을 batchSize 단위로 batch update (version 조건, version 증가)
+    long updateAllStateless(Iterable<Member> members, int batchSize);
+}
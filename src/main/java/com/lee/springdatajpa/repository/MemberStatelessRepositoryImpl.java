@@ -0,0 +1,198 @@
+package com.lee.springdatajpa.repository;
+
+import com.lee.springdatajpa.audit.AuditClock;
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.stats.TeamStatsEventListener;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.CacheImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.query.Query;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// MemberStatelessRepository + Impl (스프링 데이터 조각 구현 이름 규칙)
+@RequiredArgsConstructor
+public class MemberStatelessRepositoryImpl implements MemberStatelessRepository {
+
+    private final EntityManager em;
+    private final AuditClock auditClock;
+    private final TeamStatsEventListener teamStatsEventListener;
+    private final PageCountCache pageCountCache;
+
+    @Override
+    @Transactional(readOnly = true)
+    public long scanAllStateless(int fetchSize, Consumer<Member> action) {
+        return withStatelessSession(session -> scroll(
+                session.createQuery("select m from Member m left join fetch m.team", Member.class), fetchSize, action));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long scanRangeStateless(long fromId, long toId, int fetchSize, Consumer<Member> action) {
+        return withStatelessSession(session -> scroll(
+                session.createQuery("select m from Member m left join fetch m.team" +
+                                " where m.id >= :fromId and m.id < :toId", Member.class)
+                        .setParameter("fromId", fromId)
+                        .setParameter("toId", toId),
+                fetchSize, action));
+    }
+
+    @Override
+    @Transactional
+    public long insertAllStateless(Iterable<Member> members, int batchSize) {
+        Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+        SessionImplementor entitySession = em.unwrap(SessionImplementor.class);
+        Set<Integer> ages = new HashSet<>();
+        long inserted = withStatelessSession(session -> {
+            session.setJdbcBatchSize(batchSize);
+            long count = 0;
+            for (Member member : members) {
+                // StatelessSession은 이벤트 리스너를 타지 않으므로 시각과 팀 통계 증감을 직접 넘긴다.
+                if (auditClock.isEnabled()) {
+                    member.created(auditClock.now());
+                }
+                session.insert(member);
+                teamStatsEventListener.memberInserted(entitySession, member);
+                ages.add(member.getAge());
+                if (++count % batchSize == 0) {
+                    executeBatch(session);
+                }
+            }
+            executeBatch(session);
+            return count;
+        });
+        invalidateCaches(entitySession, Collections.emptyList(), ages, true);
+        return inserted;
+    }
+
+    @Override
+    @Transactional
+    public long updateAllStateless(Iterable<Member> members, int batchSize) {
+        Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+        SessionImplementor entitySession = em.unwrap(SessionImplementor.class);
+        List<Long> updatedIds = new ArrayList<>();
+        Set<Integer> ages = new HashSet<>();
+        long updated = withStatelessSession(session -> {
+            session.setJdbcBatchSize(batchSize);
+            List<Member> batch = new ArrayList<>(batchSize);
+            long count = 0;
+            for (Member member : members) {
+                batch.add(member);
+                if (batch.size() == batchSize) {
+                    count += updateBatch(session, entitySession, batch, updatedIds, ages);
+                    batch.clear();
+                }
+            }
+            count += updateBatch(session, entitySession, batch, updatedIds, ages);
+            return count;
+        });
+        invalidateCaches(entitySession, updatedIds, ages, false);
+        return updated;
+    }
+
+    // 수정 전 팀과 나이를 batch마다 한번에 읽어서 팀 통계 증감을 계산한다.
+    private int updateBatch(StatelessSession session, SessionImplementor entitySession, List<Member> batch,
+                            List<Long> updatedIds, Set<Integer> ages) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Object[]> before = session.createQuery("select m.id, t.id, m.age from Member m left join m.team t" +
+                        " where m.id in :ids", Object[].class)
+                .setParameter("ids", batch.stream().map(Member::getId).collect(Collectors.toList()))
+                .getResultList().stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], Function.identity()));
+        for (Member member : batch) {
+            if (auditClock.isEnabled()) {
+                member.updated(auditClock.now());
+            }
+            session.update(member);
+            Object[] previous = before.get(member.getId());
+            if (previous != null) {
+                int previousAge = (Integer) previous[2];
+                teamStatsEventListener.memberUpdated(entitySession, (Long) previous[1], previousAge, member);
+                if (previousAge != member.getAge()) {
+                    ages.add(previousAge);
+                    ages.add(member.getAge());
+                }
+            }
+            updatedIds.add(member.getId());
+        }
+        executeBatch(session);
+        return batch.size();
+    }
+
+    /**
+     * StatelessSession 쓰기는 2차 캐시와 count 캐시를 거치지 않고 DB를 바로 바꾼다.
+     * 수정한 회원만 Member 리전에서 지우고, member 테이블을 쓰는 쿼리 캐시 결과는 Hibernate 쓰기와 같이 timestamps로 무효로 하고,
+     * count 캐시는 바뀐 나이의 count만 (insert 면 전체 count도) 지운다.
+     * 커밋 전에 다른 트랜잭션이 옛날 값을 다시 채울 수 있으므로 트랜잭션이 끝난 뒤 한번 더 한다.
+     */
+    private void invalidateCaches(SessionImplementor session, List<Long> updatedIds, Set<Integer> ages, boolean inserted) {
+        CacheImplementor cache = session.getFactory().getCache();
+        String[] spaces = (String[]) session.getFactory().getMetamodel().entityPersister(Member.class).getQuerySpaces();
+        Runnable evict = () -> {
+            updatedIds.forEach(id -> cache.evictEntityData(Member.class, id));
+            pageCountCache.evict("age", ages, inserted);
+        };
+        evict.run();
+        cache.getTimestampsCache().preInvalidate(spaces, session);
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> {
+            evict.run();
+            cache.getTimestampsCache().invalidate(spaces, completed);
+        });
+    }
+
+    private long scroll(Query<Member> query, int fetchSize, Consumer<Member> action) {
+        ScrollableResults results = query.setFetchSize(fetchSize).scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            long count = 0;
+            while (results.next()) {
+                action.accept((Member) results.get(0));
+                count++;
+            }
+            return count;
+        } finally {
+            results.close();
+        }
+    }
+
+    // 현재 트랜잭션의 커넥션으로 StatelessSession을 연다. (닫아도 커넥션은 반납하지 않는다)
+    // 같은 트랜잭션에서 EntityManager로 바꾼 내용이 보이도록 먼저 flush 한다.
+    private <T> T withStatelessSession(Function<StatelessSession, T> work) {
+        Session session = em.unwrap(Session.class);
+        if (session.getHibernateFlushMode() != FlushMode.MANUAL) {
+            session.flush();
+        }
+        Connection connection = session.doReturningWork(c -> c);
+        StatelessSession statelessSession = session.getSessionFactory().openStatelessSession(connection);
+        try {
+            return work.apply(statelessSession);
+        } finally {
+            statelessSession.close();
+        }
+    }
+
+    // StatelessSession은 flush가 없으므로 쌓인 JDBC batch를 직접 실행한다.
+    private void executeBatch(StatelessSession session) {
+        ((SharedSessionContractImplementor) session).getJdbcCoordinator().executeBatch();
+    }
+}
@@ -0,0 +1,75 @@
+package com.lee.springdatajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * 낙관적 락(@Version) 충돌이 나면 트랜잭션을 새로 시작해서 다시 실행한다.
+ * 충돌이 몰릴 때 같이 재시도하지 않도록 backoff 사이에 jitter를 준다.
+ * <p>
+ * 재시도마다 엔티티를 다시 조회해야 하므로 work 안에서 조회부터 수정까지 해야 한다.
+ * 이미 트랜잭션 안에서 호출되면 재시도할 수 없으므로 (같은 트랜잭션이 rollback-only가 된다) 한번만 실행한다.
+ */
+@Slf4j
+@Component
+public class OptimisticRetryTemplate {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+
+    public OptimisticRetryTemplate(PlatformTransactionManager transactionManager,
+                                   @Value("${member.optimistic-retry.max-attempts:10}") int maxAttempts,
+                                   @Value("${member.optimistic-retry.backoff:5ms}") Duration backoff,
+                                   @Value("${member.optimistic-retry.max-backoff:200ms}") Duration maxBackoff) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("optimistic lock conflict, retry {}/{}", attempt, maxAttempts - 1);
+                if (!sleep(backoff(attempt))) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // backoff * 2^(attempt-1) 까지 늘리되 maxBackoff를 넘지 않고, 그 절반 ~ 전체 사이에서 랜덤
+    private long backoff(int attempt) {
+        long millis = Math.min(maxBackoff.toMillis(), backoff.toMillis() << Math.min(attempt - 1, 20));
+        return millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1);
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.lee.springdatajpa.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Page 조회시 매번 실행되는 count 쿼리 결과를 (count 쿼리 + 파라미터) 단위로 TTL 동안 캐시한다.
+ * Member가 저장/삭제/벌크 수정되면 {@link PageCountCacheEvictAspect}가 전부 비우고,
+ * StatelessSession 쓰기는 바뀐 나이의 count만 {@link #evict}로 지운다.
+ * 파라미터 조합마다 항목이 생기므로 개수(max-size)를 제한하고, 만료된 항목은 Caffeine이 지운다.
+ * <p>
+ * - EXACT : 캐시가 없으면 count 쿼리를 실행하고 기다린다.
+ * - ESTIMATED : 캐시가 없거나 만료되었으면 백그라운드에서 다시 세고, 지금은 캐시된 값(또는 하한값)을 바로 돌려준다.
+ *   만료된 값은 TTL 한번 더 지나면 지운다.
+ * <p>
+ * 지우기 전에 시작한 count(특히 백그라운드 refresh)가 지운 뒤에 끝나면 지우기 전 값이 다시 들어간다.
+ * 지울 때마다 generation을 올리고, count를 시작할 때의 generation이 바뀌었으면 결과를 캐시하지 않는다.
+ */
+@Slf4j
+@Component
+public class PageCountCache implements DisposableBean {
+
+    public enum Mode { EXACT, ESTIMATED }
+
+    private final Cache<Key, Entry> cache;
+    private final Map<Key, Boolean> refreshing = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "page-count-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Duration ttl;
+    private final Mode mode;
+
+    public PageCountCache(@Value("${member.page-count-cache.ttl:30s}") Duration ttl,
+                          @Value("${member.page-count-cache.mode:EXACT}") Mode mode,
+                          @Value("${member.page-count-cache.max-size:10000}") long maxSize) {
+        this.ttl = ttl;
+        this.mode = mode;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(mode == Mode.ESTIMATED ? ttl.multipliedBy(2) : ttl)
+                .build();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long count(String countQuery, Map<String, ?> params, LongSupplier counter) {
+        Key key = new Key(countQuery, params);
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && !entry.isExpired()) {
+            return entry.count;
+        }
+        long started = generation.get();
+        long count = counter.getAsLong();
+        putIfNotEvicted(key, count, started);
+        return count;
+    }
+
+    /**
+     * 페이지 조회를 막지 않는다. 캐시된 값이 없으면 lowerBound를 돌려주고 백그라운드에서 센다.
+     * 만료된 값도 새로 셀 때까지는 그대로 돌려준다.
+     */
+    public long estimate(String countQuery, Map<String, ?> params, LongSupplier counter, long lowerBound) {
+        Key key = new Key(countQuery, params);
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null || entry.isExpired()) {
+            refreshAsync(key, counter);
+        }
+        return entry == null ? lowerBound : Math.max(entry.count, lowerBound);
+    }
+
+    public void evictAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * 파라미터 name의 값이 values 중 하나인 count만 지운다.
+     * name 파라미터가 없는 count(전체 count 등)는 withoutParam 이면 같이 지운다.
+     */
+    public void evict(String name, Collection<?> values, boolean withoutParam) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key ->
+                key.params.containsKey(name) ? values.contains(key.params.get(name)) : withoutParam);
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private void refreshAsync(Key key, LongSupplier counter) {
+        if (refreshing.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        long started = generation.get();
+        refresher.execute(() -> {
+            try {
+                putIfNotEvicted(key, counter.getAsLong(), started);
+            } catch (RuntimeException e) {
+                log.warn("count refresh failed. query={}", key.query, e);
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    // 지울 때는 generation을 먼저 올리고 지운다. put 뒤에 다시 확인해서, 확인과 put 사이에 지운 경우도 되돌린다.
+    private void putIfNotEvicted(Key key, long count, long started) {
+        if (generation.get() != started) {
+            return;
+        }
+        cache.put(key, new Entry(count, System.nanoTime() + ttl.toNanos()));
+        if (generation.get() != started) {
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    private static final class Key {
+        private final String query;
+        private final Map<String, ?> params;
+
+        Key(String query, Map<String, ?> params) {
+            this.query = query;
+            this.params = params;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return query.equals(key.query) && params.equals(key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * query.hashCode() + params.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        private final long count;
+        private final long expiresAt;
+
+        Entry(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
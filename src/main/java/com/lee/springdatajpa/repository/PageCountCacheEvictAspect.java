@@ -0,0 +1,41 @@
+package com.lee.springdatajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Member 테이블을 바꾸는 repository 메서드가 끝나면 count 캐시를 비운다.
+// 트랜잭션 안이면 커밋 전에 다른 요청이 옛날 값으로 다시 채울 수 있으므로 트랜잭션 종료 후 한번 더 비운다.
+// StatelessSession 쓰기(insertAllStateless, updateAllStateless)는 바뀐 나이를 알므로 repository가 그 count만 지운다.
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class PageCountCacheEvictAspect {
+
+    private final PageCountCache pageCountCache;
+
+    @Pointcut("target(com.lee.springdatajpa.repository.MemberRepository)" +
+            " && (execution(* save*(..)) || execution(* delete*(..)) || execution(* bulkAgePlus*(..)))")
+    void memberRepositoryWrite() {}
+
+    @Pointcut("target(com.lee.springdatajpa.repository.MemberJpaRepository)" +
+            " && (execution(* save(..)) || execution(* delete(..)) || execution(* bulkAgePlus(..)))")
+    void memberJpaRepositoryWrite() {}
+
+    @AfterReturning("memberRepositoryWrite() || memberJpaRepositoryWrite()")
+    public void evict() {
+        pageCountCache.evictAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    pageCountCache.evictAll();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.lee.springdatajpa.repository;
+
+import com.lee.springdatajpa.stats.TeamStatsTracker;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+// 벌크 수정은 Member 엔티티 이벤트를 거치지 않으므로 팀 통계를 다시 집계한다.
+// (StatelessSession 쓰기는 바뀐 회원을 알므로 repository가 TeamStatsEventListener에 증감을 직접 넘긴다)
+// 다시 집계는 팀 청크마다 새 트랜잭션이므로, 호출한 쪽 트랜잭션이 있으면 커밋된 뒤에 한다. (bulkAgePlusInChunks는 이미 청크마다 커밋했다)
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class TeamStatsRebuildAspect {
+
+    private final TeamStatsTracker teamStatsTracker;
+
+    // 나이가 바뀐 회원의 팀만. 바뀐 회원은 지금 age + 1 이상이다.
+    @AfterReturning(value = "(target(com.lee.springdatajpa.repository.MemberRepository)" +
+            " || target(com.lee.springdatajpa.repository.MemberJpaRepository))" +
+            " && execution(* bulkAgePlus*(..)) && args(age, ..)", argNames = "age")
+    public void rebuildAgedTeams(int age) {
+        List<Long> teamIds = teamStatsTracker.teamIdsWithMembersAgedFrom(age + 1);
+        afterCommit(() -> teamStatsTracker.rebuild(teamIds));
+    }
+
+    private void afterCommit(Runnable rebuild) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                rebuild.run();
+            }
+        });
+    }
+}
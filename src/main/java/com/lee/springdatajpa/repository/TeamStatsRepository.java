@@ -0,0 +1,15 @@
+package com.lee.springdatajpa.repository;
+
+import com.lee.springdatajpa.entity.TeamStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+// 팀 통계 조회는 findById(팀 id) 한번. 증감은 TeamStatsEventListener, 다시 집계는 TeamStatsTracker가 한다.
+public interface TeamStatsRepository extends JpaRepository<TeamStats, Long> {
+
+    // 팀을 SQL로 직접 지웠을 때 남은 행
+    @Modifying(clearAutomatically = true)
+    @Query("delete from TeamStats s where s.teamId not in (select t.id from Team t)")
+    int deleteOrphanStats();
+}
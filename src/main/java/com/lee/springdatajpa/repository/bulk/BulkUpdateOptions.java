@@ -0,0 +1,54 @@
+package com.lee.springdatajpa.repository.bulk;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * ChunkedBulkUpdater 옵션.
+ * <pre>
+ * BulkUpdateOptions.chunkSize(1000)
+ *         .withPause(Duration.ofMillis(50))
+ *         .withListener(progress -> log.info("{}", progress));
+ * </pre>
+ */
+public class BulkUpdateOptions {
+
+    private final long chunkSize;
+    private final Duration pause;
+    private final Consumer<BulkUpdateProgress> listener;
+
+    private BulkUpdateOptions(long chunkSize, Duration pause, Consumer<BulkUpdateProgress> listener) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be greater than 0");
+        }
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+        this.listener = listener;
+    }
+
+    // 한 트랜잭션에서 처리할 id 범위의 크기
+    public static BulkUpdateOptions chunkSize(long chunkSize) {
+        return new BulkUpdateOptions(chunkSize, Duration.ZERO, progress -> { });
+    }
+
+    // 청크 사이에 쉬는 시간 (DB 부하, 복제 지연 조절)
+    public BulkUpdateOptions withPause(Duration pause) {
+        return new BulkUpdateOptions(chunkSize, pause, listener);
+    }
+
+    public BulkUpdateOptions withListener(Consumer<BulkUpdateProgress> listener) {
+        return new BulkUpdateOptions(chunkSize, pause, listener);
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public Duration getPause() {
+        return pause;
+    }
+
+    public Consumer<BulkUpdateProgress> getListener() {
+        return listener;
+    }
+}
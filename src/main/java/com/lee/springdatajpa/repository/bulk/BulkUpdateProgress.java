@@ -0,0 +1,26 @@
+package com.lee.springdatajpa.repository.bulk;
+
+import lombok.Getter;
+import lombok.ToString;
+
+// 청크 하나가 커밋될 때마다 전달되는 진행 상황
+@Getter
+@ToString
+public class BulkUpdateProgress {
+
+    private final long chunk;
+    private final long totalChunks;
+    private final long fromId;
+    private final long toId;
+    private final int updatedInChunk;
+    private final long totalUpdated;
+
+    public BulkUpdateProgress(long chunk, long totalChunks, long fromId, long toId, int updatedInChunk, long totalUpdated) {
+        this.chunk = chunk;
+        this.totalChunks = totalChunks;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.updatedInChunk = updatedInChunk;
+        this.totalUpdated = totalUpdated;
+    }
+}
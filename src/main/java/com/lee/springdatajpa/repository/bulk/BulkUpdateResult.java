@@ -0,0 +1,24 @@
+package com.lee.springdatajpa.repository.bulk;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+@Getter
+@ToString
+public class BulkUpdateResult {
+
+    private final long updated;
+    private final long chunks;
+    private final Duration elapsed;
+    // 중간에 인터럽트되어 멈췄으면 true (이미 커밋된 청크는 그대로 반영되어 있다)
+    private final boolean interrupted;
+
+    public BulkUpdateResult(long updated, long chunks, Duration elapsed, boolean interrupted) {
+        this.updated = updated;
+        this.chunks = chunks;
+        this.elapsed = elapsed;
+        this.interrupted = interrupted;
+    }
+}
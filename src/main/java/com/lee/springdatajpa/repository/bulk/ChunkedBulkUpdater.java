@@ -0,0 +1,177 @@
+package com.lee.springdatajpa.repository.bulk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.metamodel.EntityType;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 하나의 큰 JPQL update를 pk 범위로 나눠서 청크마다 별도 트랜잭션으로 커밋한다.
+ * 락을 잡는 시간과 undo/redo 크기가 청크 크기로 제한된다.
+ * <p>
+ * "update Member m set m.age = m.age + 1 where m.age >= :age" 를 넘기면 (update versioned 도 가능) 청크마다
+ * "... where (m.age >= :age) and m.id >= :chunkFrom and m.id < :chunkTo" 로 실행한다.
+ * <p>
+ * - id는 숫자 타입이어야 한다.
+ * - 청크마다 변경될 id를 먼저 조회해 두고, 커밋 후 호출한 쪽 영속성 컨텍스트에서 그 엔티티만 detach 한다.
+ *   (clearAutomatically 처럼 영속성 컨텍스트 전체를 비우지 않는다)
+ * - 읽기/쓰기 트랜잭션 안에서는 호출할 수 없다. (트랜잭션 없이, 또는 읽기 전용 트랜잭션에서 호출)
+ *   청크 트랜잭션은 호출한 트랜잭션과 별개이므로, 호출한 트랜잭션이 잠근 행(수정, select for update)을
+ *   청크가 기다리고 호출한 트랜잭션은 청크가 끝나기를 기다려서 멈춘다.
+ *   또 detach 하면 호출한 쪽에서 flush 하지 않은 변경이 사라진다.
+ */
+@Slf4j
+@Component
+public class ChunkedBulkUpdater {
+
+    private static final Pattern UPDATE = Pattern.compile(
+            "^update\\s+(versioned\\s+)?(\\w+)\\s+(?:as\\s+)?(\\w+)\\s+set\\s+(.+?)(?:\\s+where\\s+(.+))?$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate chunkTransaction;
+
+    public ChunkedBulkUpdater(EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public BulkUpdateResult execute(String jpqlUpdate, Map<String, ?> params, BulkUpdateOptions options) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("chunked bulk update cannot run inside a read-write transaction: "
+                    + TransactionSynchronizationManager.getCurrentTransactionName());
+        }
+        Matcher matcher = UPDATE.matcher(jpqlUpdate.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("not a JPQL update statement: " + jpqlUpdate);
+        }
+        String versioned = matcher.group(1) == null ? "" : "versioned ";
+        String entityName = matcher.group(2);
+        String alias = matcher.group(3);
+        String setClause = matcher.group(4);
+        String whereClause = matcher.group(5);
+
+        EntityType<?> entityType = entityType(entityName);
+        String idPath = alias + "." + entityType.getId(entityType.getIdType().getJavaType()).getName();
+        String from = " from " + entityName + " " + alias;
+        String predicate = (whereClause == null ? "" : "(" + whereClause + ") and ")
+                + idPath + " >= :chunkFrom and " + idPath + " < :chunkTo";
+
+        long started = System.nanoTime();
+        Object[] range = chunkTransaction.execute(status ->
+                em.createQuery("select min(" + idPath + "), max(" + idPath + ")" + from, Object[].class).getSingleResult());
+        if (range == null || range[0] == null) {
+            return new BulkUpdateResult(0, 0, Duration.ofNanos(System.nanoTime() - started), false);
+        }
+        long minId = ((Number) range[0]).longValue();
+        long maxId = ((Number) range[1]).longValue();
+        long chunkSize = options.getChunkSize();
+        long totalChunks = (maxId - minId) / chunkSize + 1;
+
+        String selectIds = "select " + idPath + from + " where " + predicate;
+        String update = "update " + versioned + entityName + " " + alias + " set " + setClause + " where " + predicate;
+
+        long totalUpdated = 0;
+        long chunk = 0;
+        boolean interrupted = false;
+        for (long start = minId; start <= maxId; start += chunkSize) {
+            long chunkFrom = start;
+            long chunkTo = start + chunkSize;
+            ChunkResult result = chunkTransaction.execute(status -> {
+                List<?> ids = bind(em.createQuery(selectIds), params, chunkFrom, chunkTo).getResultList();
+                if (ids.isEmpty()) {
+                    return new ChunkResult(Collections.emptyList(), 0);
+                }
+                return new ChunkResult(ids, bind(em.createQuery(update), params, chunkFrom, chunkTo).executeUpdate());
+            });
+
+            detachFromCallerContext(entityType.getJavaType(), result.ids);
+            totalUpdated += result.updated;
+            chunk++;
+            BulkUpdateProgress progress = new BulkUpdateProgress(chunk, totalChunks, chunkFrom, chunkTo, result.updated, totalUpdated);
+            log.debug("bulk update {}", progress);
+            options.getListener().accept(progress);
+
+            if (!pause(options.getPause())) {
+                interrupted = true;
+                break;
+            }
+        }
+        return new BulkUpdateResult(totalUpdated, chunk, Duration.ofNanos(System.nanoTime() - started), interrupted);
+    }
+
+    private Query bind(Query query, Map<String, ?> params, long chunkFrom, long chunkTo) {
+        params.forEach(query::setParameter);
+        return query.setParameter("chunkFrom", chunkFrom).setParameter("chunkTo", chunkTo);
+    }
+
+    private EntityType<?> entityType(String entityName) {
+        return em.getMetamodel().getEntities().stream()
+                .filter(type -> type.getName().equals(entityName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("unknown entity: " + entityName));
+    }
+
+    // 호출한 쪽 트랜잭션(또는 OSIV)의 영속성 컨텍스트에 변경된 엔티티가 있으면 그것만 detach
+    private void detachFromCallerContext(Class<?> entityClass, List<?> ids) {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+        if (holder == null || ids.isEmpty()) {
+            return;
+        }
+        EntityManager callerEm = holder.getEntityManager();
+        SessionImplementor session = callerEm.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entityClass);
+        for (Object id : ids) {
+            Object entity = session.getPersistenceContext().getEntity(session.generateEntityKey((Serializable) id, persister));
+            if (entity != null) {
+                callerEm.detach(entity);
+            }
+        }
+    }
+
+    private boolean pause(Duration pause) {
+        if (pause.isZero() || pause.isNegative()) {
+            return true;
+        }
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static class ChunkResult {
+        private final List<?> ids;
+        private final int updated;
+
+        ChunkResult(List<?> ids, int updated) {
+            this.ids = ids;
+            this.updated = updated;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.lee.springdatajpa.repository.scan;
+
+import com.lee.springdatajpa.entity.Member;
+
+import java.util.Map;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+// ParallelMemberScanner 리포트용 Collector
+public final class MemberScanCollectors {
+
+    private MemberScanCollectors() {
+    }
+
+    /**
+     * 팀 id -> (나이 구간 시작값 -> 회원 수). 팀이 없는 회원은 팀 id 0.
+     * bucketWidth가 10이면 23살은 20 구간.
+     */
+    public static Collector<Member, ?, Map<Long, Map<Integer, Long>>> teamAgeHistogram(int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("bucketWidth must be greater than 0");
+        }
+        return Collectors.groupingBy(
+                member -> member.getTeam() == null ? 0L : member.getTeam().getId(),
+                Collectors.groupingBy(member -> Math.floorDiv(member.getAge(), bucketWidth) * bucketWidth,
+                        Collectors.counting()));
+    }
+}
@@ -0,0 +1,120 @@
+package com.lee.springdatajpa.repository.scan;
+
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collector;
+
+/**
+ * 전체 Member를 member_id 범위로 나눠서 여러 스레드에서 동시에 읽고, 결과를 Collector로 합친다.
+ * <pre>
+ * Map&lt;Long, Map&lt;Integer, Long&gt;&gt; histogram = scanner.scan(MemberScanCollectors.teamAgeHistogram(10));
+ * </pre>
+ * - 범위마다 읽기 전용 트랜잭션(커넥션)을 따로 쓰고 StatelessSession으로 읽는다. (영속성 컨텍스트 없음)
+ * - 범위마다 Collector의 컨테이너를 따로 만들고, 끝나면 범위 순서대로 combiner로 합친다. (thread-safe 하지 않아도 된다)
+ * - 동시 실행 수(parallelism)는 커넥션 풀보다 작게. 기본값은 min(코어 수, 풀 크기 / 2)
+ * - 범위마다 트랜잭션이 다르므로 범위끼리는 같은 시점의 스냅샷이 아니다.
+ */
+@Slf4j
+@Component
+public class ParallelMemberScanner implements DisposableBean {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    public ParallelMemberScanner(MemberRepository memberRepository, PlatformTransactionManager transactionManager,
+                                 @Value("${member.parallel-scan.parallelism:0}") int parallelism,
+                                 @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.memberRepository = memberRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.parallelism = parallelism > 0 ? parallelism
+                : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), poolSize / 2));
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.parallelism, r -> {
+            Thread thread = new Thread(r, "member-scan-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public <A, R> R scan(Collector<Member, A, R> collector) {
+        return scan(collector, ParallelScanOptions.partitions(parallelism * 4));
+    }
+
+    public <A, R> R scan(Collector<Member, A, R> collector, ParallelScanOptions options) {
+        Object[] range = readOnlyTransaction.execute(status ->
+                em.createQuery("select min(m.id), max(m.id) from Member m", Object[].class).getSingleResult());
+        A result = collector.supplier().get();
+        if (range == null || range[0] == null) {
+            return collector.finisher().apply(result);
+        }
+        long minId = ((Number) range[0]).longValue();
+        long maxId = ((Number) range[1]).longValue();
+        long width = Math.max(1, (maxId - minId + 1 + options.getPartitions() - 1) / options.getPartitions());
+
+        long started = System.nanoTime();
+        List<Future<A>> futures = new ArrayList<>();
+        for (long from = minId; from <= maxId; from += width) {
+            long fromId = from;
+            long toId = Math.min(from + width, maxId + 1);
+            futures.add(executor.submit(() -> {
+                A container = collector.supplier().get();
+                memberRepository.scanRangeStateless(fromId, toId, options.getFetchSize(),
+                        member -> collector.accumulator().accept(container, member));
+                return container;
+            }));
+        }
+
+        try {
+            for (Future<A> future : futures) {
+                result = collector.combiner().apply(result, future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(futures);
+            throw new CancellationException("member scan interrupted");
+        } catch (ExecutionException e) {
+            cancel(futures);
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+        log.debug("member scan {} partitions, {} threads, {}ms",
+                futures.size(), parallelism, (System.nanoTime() - started) / 1_000_000);
+        return collector.finisher().apply(result);
+    }
+
+    private void cancel(List<? extends Future<?>> futures) {
+        futures.forEach(future -> future.cancel(true));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
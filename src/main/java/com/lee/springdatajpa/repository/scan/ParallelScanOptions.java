@@ -0,0 +1,41 @@
+package com.lee.springdatajpa.repository.scan;
+
+/**
+ * ParallelMemberScanner 옵션.
+ * <pre>
+ * ParallelScanOptions.partitions(64).withFetchSize(1000);
+ * </pre>
+ */
+public class ParallelScanOptions {
+
+    private final int partitions;
+    private final int fetchSize;
+
+    private ParallelScanOptions(int partitions, int fetchSize) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions must be greater than 0");
+        }
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetchSize must be greater than 0");
+        }
+        this.partitions = partitions;
+        this.fetchSize = fetchSize;
+    }
+
+    // member_id 범위를 몇 개로 나눌지. 스레드 수보다 크게 잡아야 범위마다 행 수가 달라도 스레드가 놀지 않는다.
+    public static ParallelScanOptions partitions(int partitions) {
+        return new ParallelScanOptions(partitions, 1000);
+    }
+
+    public ParallelScanOptions withFetchSize(int fetchSize) {
+        return new ParallelScanOptions(partitions, fetchSize);
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+}
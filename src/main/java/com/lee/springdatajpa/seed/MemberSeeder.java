@@ -0,0 +1,44 @@
+package com.lee.springdatajpa.seed;
+
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 샘플 회원 데이터. 애플리케이션이 준비된 뒤(readiness) 백그라운드에서 넣으므로 시작 시간에 포함되지 않는다.
+ * 이미 회원이 있으면 (ddl-auto: none 등으로 데이터가 남아있으면) 넣지 않는다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "seed", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MemberSeeder {
+
+    private final SeedProperties properties;
+    private final MemberRepository memberRepository;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        if (memberRepository.count() > 0) {
+            log.info("members already exist, skip seeding");
+            return;
+        }
+        long start = System.nanoTime();
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < properties.getMembers(); i++) {
+            members.add(new Member("user" + i, i));
+        }
+        long saved = memberRepository.saveAllBatched(members, properties.getBatchSize());
+        log.info("seeded {} members in {}ms", saved, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,22 @@
+package com.lee.springdatajpa.seed;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+// seed.* 설정
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "seed")
+public class SeedProperties {
+
+    // false 면 MemberSeeder 빈 자체를 만들지 않는다. (prod 프로필, 테스트)
+    private boolean enabled = true;
+
+    private int members = 100;
+
+    // saveAllBatched 의 flush/clear 단위
+    private int batchSize = 100;
+}
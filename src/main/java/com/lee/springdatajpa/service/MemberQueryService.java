@@ -0,0 +1,45 @@
+package com.lee.springdatajpa.service;
+
+import com.lee.springdatajpa.dto.CursorPage;
+import com.lee.springdatajpa.dto.MemberCursor;
+import com.lee.springdatajpa.dto.MemberDto;
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.repository.MemberFetchPlan;
+import com.lee.springdatajpa.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * MemberController 조회용. open-in-view를 껐으므로 트랜잭션 안에서 fetch plan대로 조회하고 DTO로 바꿔서 돌려준다.
+ * 커넥션은 메서드가 끝날 때 풀에 반납되고, JSON 변환(렌더링)은 커넥션 없이 한다.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class MemberQueryService {
+
+    private final MemberRepository memberRepository;
+
+    public Optional<String> findUsername(Long id) {
+        return memberRepository.findById(id, MemberFetchPlan.MEMBER).map(Member::getUsername);
+    }
+
+    public Optional<MemberDto> findMember(Long id) {
+        return memberRepository.findById(id, MemberFetchPlan.MEMBER_WITH_TEAM).map(MemberDto::new);
+    }
+
+    // team은 batch fetch로 초기화된다.
+    public CursorPage<MemberDto> cursorList(MemberCursor cursor, int size) {
+        return memberRepository.findKeysetPage(cursor, size).map(MemberDto::new);
+    }
+
+    // count 쿼리까지 같은 커넥션에서 실행한다.
+    public Page<MemberDto> list(Pageable pageable) {
+        return memberRepository.findMemberDtoPage(pageable);
+    }
+}
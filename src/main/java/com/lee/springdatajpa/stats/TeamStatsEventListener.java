@@ -0,0 +1,245 @@
+package com.lee.springdatajpa.stats;
+
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.entity.Team;
+import com.lee.springdatajpa.entity.TeamStats;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+
+import javax.persistence.LockModeType;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Member, Team 변경에 맞춰 TeamStats를 증감하는 하이버네이트 이벤트 리스너. (HibernateListenerConfig가 SessionFactory에 등록)
+ * <p>
+ * flush 때 나오는 insert/update/delete 이벤트의 이전/새 상태로 세션별 팀 증감을 모아두고,
+ * 커밋 flush가 끝난 뒤(before transaction completion) 같은 커넥션을 쓰는 자식 세션에서
+ * 팀 id 순서로 TeamStats 행을 잠그고(select for update) 한번씩만 수정한다. 롤백되면 버린다.
+ * <p>
+ * - 최소/최대 나이에 해당하는 회원이 빠지면 그 팀만 다시 집계한다.
+ * - TeamStats 행은 팀을 insert 하는 트랜잭션에서 같이 만든다. 새 팀 id 이므로 다른 트랜잭션과 겹치지 않는다.
+ *   행이 없는 이전 팀은 동시에 만들다 pk가 충돌할 수 있으므로 여기서 만들지 않고 {@link TeamStatsTracker#rebuild()}에 맡긴다.
+ * - StatelessSession 쓰기는 이벤트가 없으므로 repository가 {@link #memberInserted}, {@link #memberUpdated}로 직접 넘긴다.
+ * - 벌크 수정처럼 바뀐 회원을 모르는 변경은 {@link TeamStatsTracker}가 다시 집계한다.
+ */
+@Slf4j
+public class TeamStatsEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final Map<SessionImplementor, TeamDeltas> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            deltas(event.getSession()).team(teamId(event.getPersister(), event.getState()))
+                    .add(age(event.getPersister(), event.getState()));
+        } else if (event.getEntity() instanceof Team) {
+            deltas(event.getSession()).team((Long) event.getId()).created = true;
+        }
+    }
+
+    // 팀이나 나이가 바뀌었으면 이전 팀에서 빼고 새 팀에 더한다.
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Long teamId = teamId(persister, event.getState());
+        int age = age(persister, event.getState());
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            // 준영속 엔티티를 Session.update로 붙이면 이전 값을 모른다. 새 팀만 다시 집계하고 이전 팀은 rebuild로 맞춘다.
+            deltas(event.getSession()).team(teamId).recount = true;
+            return;
+        }
+        changed(event.getSession(), teamId(persister, oldState), age(persister, oldState), teamId, age);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            deltas(event.getSession()).team(teamId(event.getPersister(), event.getDeletedState()))
+                    .remove(age(event.getPersister(), event.getDeletedState()));
+        } else if (event.getEntity() instanceof Team) {
+            deltas(event.getSession()).team((Long) event.getId()).removed = true;
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    // StatelessSession 쓰기처럼 이벤트가 나오지 않는 변경도 같은 트랜잭션(session)의 증감에 더한다.
+    public void memberInserted(SessionImplementor session, Member member) {
+        deltas(session).team(teamId(member.getTeam())).add(member.getAge());
+    }
+
+    public void memberUpdated(SessionImplementor session, Long oldTeamId, int oldAge, Member member) {
+        changed(session, oldTeamId, oldAge, teamId(member.getTeam()), member.getAge());
+    }
+
+    private void changed(SessionImplementor session, Long oldTeamId, int oldAge, Long teamId, int age) {
+        if (!Objects.equals(oldTeamId, teamId) || oldAge != age) {
+            TeamDeltas deltas = deltas(session);
+            deltas.team(oldTeamId).remove(oldAge);
+            deltas.team(teamId).add(age);
+        }
+    }
+
+    // 세션의 트랜잭션마다 한번 만들고, 커밋/롤백 되면 지운다.
+    private TeamDeltas deltas(SessionImplementor session) {
+        return pending.computeIfAbsent(session, key -> {
+            TeamDeltas deltas = new TeamDeltas();
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) deltas);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) deltas);
+            return deltas;
+        });
+    }
+
+    private static Long teamId(EntityPersister persister, Object[] state) {
+        return teamId(state[persister.getEntityMetamodel().getPropertyIndex("team")]);
+    }
+
+    // 프록시를 초기화하지 않고 팀 id만 꺼낸다.
+    private static Long teamId(Object team) {
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return team == null ? null : ((Team) team).getId();
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+    }
+
+    private static Integer min(Integer a, Integer b) {
+        return a == null ? b : b == null ? a : Integer.valueOf(Math.min(a, b));
+    }
+
+    private static Integer max(Integer a, Integer b) {
+        return a == null ? b : b == null ? a : Integer.valueOf(Math.max(a, b));
+    }
+
+    private class TeamDeltas implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+        // TreeMap이므로 팀 id 순서로 잠근다. (트랜잭션끼리 서로 다른 순서로 잠가서 교착되지 않게)
+        private final Map<Long, TeamDelta> teams = new TreeMap<>();
+
+        TeamDelta team(Long teamId) {
+            // 팀이 없는 회원은 통계가 없다.
+            return teamId == null ? new TeamDelta() : teams.computeIfAbsent(teamId, id -> new TeamDelta());
+        }
+
+        // 세션의 flush는 끝났으므로 자식 세션에서 수정하고 직접 flush 한다. (커넥션과 트랜잭션은 같이 쓴다)
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            if (pending.get(session) != this || teams.isEmpty()) {
+                return;
+            }
+            Session child = session.sessionWithOptions()
+                    .connection()
+                    .autoClose(false)
+                    .connectionHandlingMode(PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION)
+                    .openSession();
+            try {
+                teams.forEach((teamId, delta) -> apply(child, teamId, delta));
+                child.flush();
+            } finally {
+                child.close();
+            }
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            pending.remove(session, this);
+        }
+
+        private void apply(Session session, Long teamId, TeamDelta delta) {
+            if (delta.removed) {
+                TeamStats stats = session.find(TeamStats.class, teamId, LockModeType.PESSIMISTIC_WRITE);
+                if (stats != null) {
+                    session.remove(stats);
+                }
+                return;
+            }
+            TeamStats stats;
+            if (delta.created) {
+                stats = new TeamStats(teamId);
+                session.persist(stats);
+            } else {
+                stats = session.find(TeamStats.class, teamId, LockModeType.PESSIMISTIC_WRITE);
+                if (stats == null) {
+                    log.warn("team_stats row missing for team {}, skipped. rebuild team stats to create it", teamId);
+                    return;
+                }
+            }
+            if (delta.needsRecount(stats)) {
+                // 커밋 flush 후이므로 현재 트랜잭션의 변경까지 포함된다.
+                Object[] aggregate = session.createQuery("select count(m), coalesce(sum(m.age), 0), min(m.age), max(m.age)" +
+                                " from Member m where m.team.id = :teamId", Object[].class)
+                        .setParameter("teamId", teamId)
+                        .getSingleResult();
+                stats.reset(((Number) aggregate[0]).longValue(), ((Number) aggregate[1]).longValue(),
+                        (Integer) aggregate[2], (Integer) aggregate[3]);
+            } else {
+                stats.apply(delta.count, delta.ageSum, min(stats.getMinAge(), delta.addedMin), max(stats.getMaxAge(), delta.addedMax));
+            }
+        }
+    }
+
+    private static class TeamDelta {
+        private long count;
+        private long ageSum;
+        private Integer addedMin;
+        private Integer addedMax;
+        private Integer removedMin;
+        private Integer removedMax;
+        private boolean created;
+        private boolean removed;
+        private boolean recount;
+
+        void add(int age) {
+            count++;
+            ageSum += age;
+            addedMin = min(addedMin, age);
+            addedMax = max(addedMax, age);
+        }
+
+        void remove(int age) {
+            count--;
+            ageSum -= age;
+            removedMin = min(removedMin, age);
+            removedMax = max(removedMax, age);
+        }
+
+        // 빠진 회원 중에 지금 최소/최대 나이인 회원이 있을 수 있으면 증감만으로는 알 수 없다.
+        // 새 팀은 기존 값이 없으므로 빠진 회원이 하나라도 있으면 다시 집계한다.
+        boolean needsRecount(TeamStats stats) {
+            if (recount) {
+                return true;
+            }
+            if (created) {
+                return removedMin != null;
+            }
+            return removedMin != null && stats.getMinAge() != null
+                    && (removedMin <= stats.getMinAge() || removedMax >= stats.getMaxAge());
+        }
+    }
+}
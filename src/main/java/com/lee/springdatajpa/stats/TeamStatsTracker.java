@@ -0,0 +1,132 @@
+package com.lee.springdatajpa.stats;
+
+import com.lee.springdatajpa.entity.Team;
+import com.lee.springdatajpa.entity.TeamStats;
+import com.lee.springdatajpa.repository.TeamStatsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * TeamStats를 Member 테이블에서 다시 집계한다. 평소 증감은 {@link TeamStatsEventListener}가 한다.
+ * <p>
+ * 벌크 수정(bulkAgePlus)처럼 엔티티 이벤트를 거치지 않는 변경 뒤에는 바뀐 팀만, SQL로 직접 데이터를 고쳤을 때는 전체를 다시 집계한다.
+ * <p>
+ * - 팀 id 순서로 chunkSize개씩 나눠 청크마다 새 트랜잭션에서 한다. (Member 전체 집계와 TeamStats 전체 잠금을 한 트랜잭션에서 하지 않게)
+ * - 청크마다 Team 행을 먼저 잠그고, TeamStats 행을 잠근 뒤에 집계한다.
+ *   행이 없는 팀의 TeamStats를 두 rebuild가 동시에 만들지 않고, 그 사이 커밋된 증감도 덮어쓰지 않는다.
+ * - 새 트랜잭션이므로 호출한 쪽 트랜잭션에서 아직 커밋하지 않은 변경은 보이지 않는다. (TeamStatsRebuildAspect는 커밋 후에 부른다)
+ */
+@Component
+public class TeamStatsTracker {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TeamStatsRepository teamStatsRepository;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+
+    public TeamStatsTracker(TeamStatsRepository teamStatsRepository, PlatformTransactionManager transactionManager,
+                            @Value("${team-stats.rebuild-chunk-size:500}") int chunkSize) {
+        this.teamStatsRepository = teamStatsRepository;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = chunkSize;
+    }
+
+    // 전체 팀. 지워진 팀의 행도 정리한다.
+    public int rebuild() {
+        int teams = 0;
+        long after = Long.MIN_VALUE;
+        List<Long> teamIds;
+        do {
+            long from = after;
+            teamIds = chunkTransaction.execute(status ->
+                    em.createQuery("select t.id from Team t where t.id > :after order by t.id", Long.class)
+                            .setParameter("after", from)
+                            .setMaxResults(chunkSize)
+                            .getResultList());
+            if (!teamIds.isEmpty()) {
+                teams += rebuildChunk(teamIds);
+                after = teamIds.get(teamIds.size() - 1);
+            }
+        } while (teamIds.size() == chunkSize);
+        chunkTransaction.executeWithoutResult(status -> teamStatsRepository.deleteOrphanStats());
+        return teams;
+    }
+
+    public int rebuild(Collection<Long> teamIds) {
+        List<Long> sorted = new ArrayList<>(new TreeSet<>(teamIds));
+        int teams = 0;
+        for (int from = 0; from < sorted.size(); from += chunkSize) {
+            teams += rebuildChunk(sorted.subList(from, Math.min(from + chunkSize, sorted.size())));
+        }
+        return teams;
+    }
+
+    // age 이상인 회원이 있는 팀 (bulkAgePlus(age - 1)로 나이가 바뀐 회원의 팀이 모두 들어간다)
+    public List<Long> teamIdsWithMembersAgedFrom(int age) {
+        return em.createQuery("select distinct m.team.id from Member m where m.age >= :age and m.team is not null", Long.class)
+                .setParameter("age", age)
+                .getResultList();
+    }
+
+    private int rebuildChunk(List<Long> teamIds) {
+        Integer teams = chunkTransaction.execute(status -> {
+            // 지워진 팀은 여기서 빠진다.
+            List<Long> lockedTeamIds = em.createQuery("select t from Team t where t.id in :teamIds order by t.id", Team.class)
+                    .setParameter("teamIds", teamIds)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList().stream()
+                    .map(Team::getId)
+                    .collect(Collectors.toList());
+            Map<Long, TeamStats> stats = em.createQuery("select s from TeamStats s where s.teamId in :teamIds order by s.teamId", TeamStats.class)
+                    .setParameter("teamIds", teamIds)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList().stream()
+                    .collect(Collectors.toMap(TeamStats::getTeamId, Function.identity()));
+            if (lockedTeamIds.isEmpty()) {
+                stats.values().forEach(em::remove);
+                return 0;
+            }
+            Map<Long, Object[]> aggregates = em.createQuery("select m.team.id, count(m), coalesce(sum(m.age), 0), min(m.age), max(m.age)" +
+                            " from Member m where m.team.id in :teamIds group by m.team.id", Object[].class)
+                    .setParameter("teamIds", lockedTeamIds)
+                    .getResultList().stream()
+                    .collect(Collectors.toMap(row -> (Long) row[0], Function.identity()));
+
+            for (Long teamId : lockedTeamIds) {
+                TeamStats teamStats = stats.remove(teamId);
+                if (teamStats == null) {
+                    teamStats = new TeamStats(teamId);
+                    em.persist(teamStats);
+                }
+                Object[] aggregate = aggregates.get(teamId);
+                if (aggregate == null) {
+                    teamStats.reset(0, 0, null, null);
+                } else {
+                    teamStats.reset(((Number) aggregate[1]).longValue(), ((Number) aggregate[2]).longValue(),
+                            (Integer) aggregate[3], (Integer) aggregate[4]);
+                }
+            }
+            // 남은 행은 지워진 팀의 것
+            stats.values().forEach(em::remove);
+            return lockedTeamIds.size();
+        });
+        return teams == null ? 0 : teams;
+    }
+}
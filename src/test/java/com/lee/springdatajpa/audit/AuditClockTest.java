@@ -0,0 +1,129 @@
+package com.lee.springdatajpa.audit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditClockTest {
+
+    // 호출할 때마다 1초씩 가는 시계
+    static class TickingClock extends Clock {
+        private Instant instant = Instant.parse("2022-01-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            instant = instant.plusSeconds(1);
+            return instant;
+        }
+    }
+
+    AuditContext auditContext = new AuditContext(false);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void systemClock(){
+        AuditClock clock = new AuditClock(new TickingClock(), AuditClock.Mode.SYSTEM, auditContext);
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertThat(clock.now()).isNotEqualTo(clock.now());
+    }
+
+    @Test
+    public void transactionClock(){
+        AuditClock clock = new AuditClock(new TickingClock(), AuditClock.Mode.TRANSACTION, auditContext);
+
+        // 트랜잭션 밖에서는 매번 새 시각
+        assertThat(clock.now()).isNotEqualTo(clock.now());
+
+        TransactionSynchronizationManager.initSynchronization();
+        LocalDateTime outer = clock.now();
+        assertThat(clock.now()).isEqualTo(outer);
+
+        // REQUIRES_NEW 처럼 바깥 트랜잭션을 보류하면 안쪽은 자기 시각을 쓰고, 재개하면 바깥 시각으로 돌아온다.
+        List<TransactionSynchronization> suspended = suspend();
+        LocalDateTime inner = clock.now();
+        assertThat(inner).isNotEqualTo(outer);
+        complete();
+        resume(suspended);
+        assertThat(clock.now()).isEqualTo(outer);
+
+        complete();
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(clock.now()).isAfter(inner);
+    }
+
+    @Test
+    public void suppressed(){
+        AuditClock clock = new AuditClock(new TickingClock(), AuditClock.Mode.SYSTEM, auditContext);
+        CachedAuditorAware auditorAware = new CachedAuditorAware(auditContext, () -> "auditor");
+
+        assertThat(clock.getNow()).isPresent();
+        assertThat(auditorAware.getCurrentAuditor()).contains("auditor");
+
+        auditContext.bulkImport(() -> {
+            assertThat(clock.getNow()).isEmpty();
+            assertThat(auditorAware.getCurrentAuditor()).isEmpty();
+            return null;
+        });
+        assertThat(clock.getNow()).isPresent();
+    }
+
+    @Test
+    public void bulkImportAudited(){
+        AuditContext audited = new AuditContext(true);
+        AuditClock clock = new AuditClock(new TickingClock(), AuditClock.Mode.SYSTEM, audited);
+
+        audited.bulkImport(() -> {
+            assertThat(clock.getNow()).isPresent();
+            return null;
+        });
+    }
+
+    private List<TransactionSynchronization> suspend() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::suspend);
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        return synchronizations;
+    }
+
+    private void resume(List<TransactionSynchronization> synchronizations) {
+        TransactionSynchronizationManager.initSynchronization();
+        synchronizations.forEach(synchronization -> {
+            synchronization.resume();
+            TransactionSynchronizationManager.registerSynchronization(synchronization);
+        });
+    }
+
+    private void complete() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+}
@@ -0,0 +1,142 @@
+package com.lee.springdatajpa.config;
+
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.repository.MemberRepository;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.servlet.http.Cookie;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+// primary: localhost, replica: 127.0.0.1 (같은 H2 서버를 다른 주소로 연결해서 replica 대신 사용)
+@SpringBootTest(properties = {
+        "replica.datasource.jdbc-url=jdbc:h2:tcp://127.0.0.1/~/jpashop",
+        "replica.datasource.username=sa",
+        "replica.read-your-writes-window=0s"
+})
+class ReplicaRoutingDataSourceTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @PersistenceContext EntityManager em;
+
+    @AfterEach
+    void clearSynchronization() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void readOnlyTransactionGoesToReplica(){
+        memberRepository.save(new Member("replica1", 10));
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        String readUrl = readOnly.execute(status -> {
+            Member member = memberRepository.findReadOnlyByUsername("replica1");
+            assertThat(member).isNotNull();
+            return connectionUrl();
+        });
+
+        String writeUrl = new TransactionTemplate(transactionManager).execute(status -> connectionUrl());
+
+        assertThat(readUrl).contains("127.0.0.1");
+        assertThat(writeUrl).contains("localhost");
+    }
+
+    @Test
+    public void fallbackToPrimaryWhenReplicaDown() throws Exception {
+        DriverManagerDataSource primary = new DriverManagerDataSource("jdbc:h2:mem:primary", "sa", "");
+        DriverManagerDataSource replica = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/~/nothing", "sa", "");
+        ReplicaProperties properties = new ReplicaProperties();
+        properties.setReadYourWritesWindow(Duration.ZERO);
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, properties);
+        routing.afterPropertiesSet();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try (Connection connection = routing.getConnection()) {
+            assertThat(connection.getMetaData().getURL()).contains("mem:primary");
+        }
+    }
+
+    @Test
+    public void readYourWrites() throws Exception {
+        DriverManagerDataSource primary = new DriverManagerDataSource("jdbc:h2:mem:primary", "sa", "");
+        DriverManagerDataSource replica = new DriverManagerDataSource("jdbc:h2:mem:replica", "sa", "");
+        ReplicaProperties properties = new ReplicaProperties();
+        properties.setReadYourWritesWindow(Duration.ofMinutes(1));
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, properties);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ReadYourWrites.bind(ReadYourWrites.of(new MockHttpServletRequest(), response, properties.getReadYourWritesWindow()));
+        try {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+
+            // 쓰기 트랜잭션 직후에는 같은 요청의 읽기도 primary
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            TransactionSynchronizationManager.setActualTransactionActive(true);
+            try {
+                routing.determineCurrentLookupKey();
+            } finally {
+                TransactionSynchronizationManager.setActualTransactionActive(false);
+            }
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+        } finally {
+            ReadYourWrites.unbind();
+        }
+        Cookie cookie = response.getCookie(ReadYourWrites.COOKIE_NAME);
+        assertThat(cookie).isNotNull();
+
+        // 같은 클라이언트의 다음 요청은 다른 스레드에서 처리해도 쿠키를 보고 primary
+        MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setCookies(cookie);
+        assertThat(routeInNewThread(routing, next, properties)).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+
+        // 쿠키가 없는 다른 클라이언트는 replica
+        assertThat(routeInNewThread(routing, new MockHttpServletRequest(), properties))
+                .isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+
+        // window 보다 먼 시각으로 바꾼 쿠키는 무시한다.
+        MockHttpServletRequest forged = new MockHttpServletRequest();
+        forged.setCookies(new Cookie(ReadYourWrites.COOKIE_NAME, Long.toString(Long.MAX_VALUE)));
+        assertThat(routeInNewThread(routing, forged, properties)).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+    }
+
+    private Object routeInNewThread(ReplicaRoutingDataSource routing, MockHttpServletRequest request,
+                                    ReplicaProperties properties) throws InterruptedException {
+        AtomicReference<Object> route = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            ReadYourWrites.bind(ReadYourWrites.of(request, new MockHttpServletResponse(), properties.getReadYourWritesWindow()));
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            try {
+                route.set(routing.determineCurrentLookupKey());
+            } finally {
+                TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+                ReadYourWrites.unbind();
+            }
+        });
+        thread.start();
+        thread.join();
+        return route.get();
+    }
+
+    private String connectionUrl() {
+        return em.unwrap(Session.class).doReturningWork(connection -> connection.getMetaData().getURL());
+    }
+}
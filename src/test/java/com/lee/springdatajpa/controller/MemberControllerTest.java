@@ -0,0 +1,35 @@
+package com.lee.springdatajpa.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired MockMvc mockMvc;
+
+    @Test
+    public void invalidCursorRequest() throws Exception {
+        mockMvc.perform(get("/members/cursor").param("cursor", "not-a-cursor!"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/members/cursor").param("size", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/members/cursor").param("size", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/members/cursor").param("size", String.valueOf(MemberController.MAX_CURSOR_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/members/cursor").param("size", "1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/members/export").param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("format must be ndjson or csv"));
+    }
+}
@@ -1,16 +1,31 @@
 package com.lee.springdatajpa.entity;
 
+import com.lee.springdatajpa.audit.AuditContext;
 import com.lee.springdatajpa.repository.MemberRepository;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.AuditorAware;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
+import java.sql.SQLException;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,6 +40,39 @@ class MemberTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    SequenceCallCounter sequenceCallCounter;
+
+    @Autowired
+    AuditContext auditContext;
+
+    @Autowired
+    AuditorAware<String> auditorAware;
+
+    @Value("${spring.jpa.properties.hibernate.id.pooled.increment_size}")
+    int incrementSize;
+
+    // 시퀀스 호출(next value for ...)만 세는 p6spy 리스너
+    static class SequenceCallCounter extends SimpleJdbcEventListener {
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            String sql = statementInformation.getSql();
+            if (sql != null && sql.toLowerCase().contains("next value for member_seq")) {
+                count.incrementAndGet();
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class SequenceCallCounterConfig {
+        @Bean
+        SequenceCallCounter sequenceCallCounter() {
+            return new SequenceCallCounter();
+        }
+    }
+
     @Test
     public void testEntity(){
         Team teamA = new Team("teamA");
@@ -59,6 +107,7 @@ class MemberTest {
     public void JpaEventBaseEntity() throws Exception{
         Member member = new Member("member1");
         memberRepository.save(member);
+        em.flush();
 
         Thread.sleep(100);
         member.changeUsername("member2");
@@ -71,5 +120,107 @@ class MemberTest {
         System.out.println("findMember.createdDate="+findMember.getCreatedDate());
         System.out.println("findMember.updatedDate="+findMember.getUpdatedDate());
 
+        // 이 컨텍스트의 SessionFactory에 등록된 AuditEventListener가 채운다.
+        assertThat(findMember.getCreatedDate()).isNotNull();
+        assertThat(findMember.getUpdatedDate()).isAfter(findMember.getCreatedDate());
+    }
+
+    @Test
+    @Rollback
+    public void pooledSequence(){
+        int inserts = 10_000;
+        sequenceCallCounter.count.set(0);
+
+        for (int i = 0; i < inserts; i++) {
+            em.persist(new Member("pooled" + i, i));
+            if (i % 1000 == 999) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+
+        // 시퀀스는 increment_size 마다 한번씩만 호출된다. (pooled-lo 는 첫 호출 1번이 더 있을 수 있음)
+        int calls = sequenceCallCounter.count.get();
+        System.out.println("sequence calls per " + inserts + " inserts=" + calls);
+        assertThat(calls).isGreaterThan(0);
+        assertThat(calls).isLessThanOrEqualTo(inserts / incrementSize + 1);
+    }
+
+    @Test
+    public void auditingSuppressed(){
+        Member suppressed = auditContext.suppress(() -> memberRepository.save(new Member("auditSuppressed1", 20_000)));
+        Member audited = memberRepository.save(new Member("audited1", 20_001));
+
+        assertThat(suppressed.getCreatedDate()).isNull();
+        assertThat(audited.getCreatedDate()).isNotNull();
+    }
+
+    @Test
+    public void auditorCachedPerTransaction(){
+        // 같은 트랜잭션 안에서는 auditor를 한번만 구한다.
+        assertThat(auditorAware.getCurrentAuditor()).isEqualTo(auditorAware.getCurrentAuditor());
+
+        // randomUUID()와 같은 version 4, IETF variant
+        UUID auditor = UUID.fromString(auditorAware.getCurrentAuditor().get());
+        assertThat(auditor.version()).isEqualTo(4);
+        assertThat(auditor.variant()).isEqualTo(2);
+    }
+
+    @Test
+    public void changeTeamDoesNotLoadMembers(){
+        Team teamA = new Team("changeTeamA");
+        Team teamB = new Team("changeTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member("changeTeamA" + i, i, teamA));
+        }
+        Member moving = new Member("changeTeamB0", 10, teamB);
+        em.persist(moving);
+        em.flush();
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        long collectionLoads = statistics.getCollectionLoadCount();
+
+        Team findTeamA = em.find(Team.class, teamA.getId());
+        Member findMoving = em.find(Member.class, moving.getId());
+        Team previous = findMoving.getTeam();
+
+        findMoving.changeTeam(findTeamA);
+        Member joined = new Member("changeTeamNew", 20, findTeamA);
+        em.persist(joined);
+
+        // members 컬렉션 select 없음, 이전 팀 프록시도 초기화하지 않음
+        assertThat(statistics.getCollectionLoadCount()).isEqualTo(collectionLoads);
+        assertThat(Hibernate.isInitialized(findTeamA.getMembers())).isFalse();
+        assertThat(Hibernate.isInitialized(previous)).isFalse();
+
+        // 나중에 로딩하면 예약해 둔 추가가 합쳐진다.
+        assertThat(findTeamA.getMembers()).hasSize(5).contains(findMoving, joined);
+    }
+
+    @Test
+    public void changeTeamKeepsLoadedMembers(){
+        Team teamA = new Team("loadedTeamA");
+        Team teamB = new Team("loadedTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member = new Member("loadedMember", 10, teamA);
+        em.persist(member);
+        em.flush();
+        em.clear();
+
+        Team findTeamA = em.find(Team.class, teamA.getId());
+        Team findTeamB = em.find(Team.class, teamB.getId());
+        Member findMember = findTeamA.getMembers().get(0);
+        assertThat(findTeamB.getMembers()).isEmpty();
+
+        // 이미 로딩된 컬렉션은 양쪽 다 맞춰준다.
+        findMember.changeTeam(findTeamB);
+        assertThat(findTeamA.getMembers()).isEmpty();
+        assertThat(findTeamB.getMembers()).containsExactly(findMember);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package com.lee.springdatajpa.inspection;
+
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.repository.MemberJpaRepository;
+import com.lee.springdatajpa.repository.MemberRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+@Rollback(false)
+@ExtendWith(OutputCaptureExtension.class)
+class RepositoryMetricsAspectTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired RepositoryMetricsProperties properties;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void recordLatencyAndRows(){
+        memberRepository.save(new Member("metrics1", 25_300));
+        memberRepository.save(new Member("metrics1", 25_301));
+
+        memberRepository.findListByUsername("metrics1");
+        memberJpaRepository.findByUsernameAndAgeGreaterThen("metrics1", 25_300);
+
+        Timer timer = meterRegistry.find("repository.invocations")
+                .tags("repository", "MemberRepository", "method", "findListByUsername", "outcome", "success")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isGreaterThanOrEqualTo(1);
+
+        DistributionSummary rows = meterRegistry.find("repository.rows")
+                .tags("repository", "MemberRepository", "method", "findListByUsername")
+                .summary();
+        assertThat(rows.max()).isGreaterThanOrEqualTo(2);
+
+        // 순수 JPA repository도 같은 이름으로 기록된다.
+        assertThat(meterRegistry.find("repository.invocations")
+                .tags("repository", "MemberJpaRepository", "method", "findByUsernameAndAgeGreaterThen")
+                .timer()).isNotNull();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void recordException(){
+        assertThatThrownBy(() -> memberRepository.findById(null)).isInstanceOf(RuntimeException.class);
+
+        Timer timer = meterRegistry.find("repository.invocations")
+                .tags("repository", "MemberRepository", "method", "findById", "outcome", "error")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.getId().getTag("exception")).isNotEqualTo("none");
+    }
+
+    @Test
+    public void slowCallLog(CapturedOutput output){
+        Duration threshold = properties.getSlowThreshold();
+        properties.setSlowThreshold(Duration.ZERO);
+        try {
+            memberRepository.findListByUsername("metricsSlow1");
+            memberRepository.findByNames(Arrays.asList("metricsSlow2", "metricsSlow3"));
+        } finally {
+            properties.setSlowThreshold(threshold);
+        }
+
+        // 기본은 값 대신 타입과 크기만 남긴다.
+        assertThat(output).contains("slow repository call MemberRepository.findListByUsername");
+        assertThat(output).contains("parameters=[String]");
+        assertThat(output).contains("parameters=[" + Arrays.asList().getClass().getSimpleName() + "(size=2)]");
+        // p6spy 로그에는 바인딩 값이 나오므로 느린 호출 로그 줄만 본다.
+        assertThat(output.getOut().lines().filter(line -> line.contains("slow repository call")))
+                .isNotEmpty()
+                .noneMatch(line -> line.contains("metricsSlow"));
+    }
+
+    @Test
+    public void slowCallLogWithValues(CapturedOutput output){
+        Duration threshold = properties.getSlowThreshold();
+        int maxLength = properties.getMaxParameterLength();
+        properties.setSlowThreshold(Duration.ZERO);
+        properties.setLogParameterValues(true);
+        properties.setMaxParameterLength(20);
+        try {
+            memberRepository.findListByUsername("metricsSlow1");
+            memberRepository.findByNames(Collections.nCopies(1_000, "metricsSlow2"));
+        } finally {
+            properties.setSlowThreshold(threshold);
+            properties.setLogParameterValues(false);
+            properties.setMaxParameterLength(maxLength);
+        }
+
+        assertThat(output).contains("parameters=[metricsSlow1]");
+        // 큰 컬렉션은 최대 길이까지만 원소를 붙인다.
+        assertThat(output).contains("(size=1000)[metricsSlow2, metricsSlow2...]");
+    }
+}
@@ -0,0 +1,48 @@
+package com.lee.springdatajpa.inspection;
+
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.repository.MemberRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.*;
+
+// 실제 서블릿 컨테이너에서 FAIL 모드가 응답을 실패시키는지 확인한다. (요청당 statement 0개까지 허용)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "sql.inspection.mode=fail",
+        "sql.inspection.max-statements-per-request=0"
+})
+class StatementCountFilterTest {
+
+    @Autowired TestRestTemplate restTemplate;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void failModeFailsResponseBeforeBody(){
+        Member member = memberRepository.save(new Member("inspectFail", 10));
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/members/v1/{id}", String.class, member.getId());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(response.getBody()).doesNotContain("inspectFail");
+        assertThat(meterRegistry.find("jdbc.statements.per.request").tag("name", "GET /members/v1/{id}").summary())
+                .isNotNull();
+
+        memberRepository.deleteById(member.getId());
+    }
+
+    @Test
+    public void unmatchedRequestNotTaggedWithUri(){
+        restTemplate.getForEntity("/scan/probe-12345", String.class);
+
+        assertThat(meterRegistry.find("jdbc.statements.per.request").summaries())
+                .extracting(summary -> summary.getId().getTag("name"))
+                .noneMatch(name -> name.contains("probe-12345"));
+    }
+}
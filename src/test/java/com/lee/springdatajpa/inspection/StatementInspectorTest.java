@@ -0,0 +1,109 @@
+package com.lee.springdatajpa.inspection;
+
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.entity.Team;
+import com.lee.springdatajpa.repository.MemberRepository;
+import com.lee.springdatajpa.repository.TeamRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+@Rollback(false)
+class StatementInspectorTest {
+
+    @Autowired StatementInspector statementInspector;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired MeterRegistry meterRegistry;
+    @PersistenceContext EntityManager em;
+
+    @Test
+    public void detectRepeatedStatements(){
+        memberRepository.save(new Member("inspect1", 10));
+        em.flush();
+
+        // 파라미터만 다른 같은 SQL을 반복 -> N+1 의심
+        StatementStats stats = statementInspector.capture(() -> {
+            for (int i = 0; i < 20; i++) {
+                memberRepository.findListByUsername("inspect" + i);
+            }
+        });
+
+        assertThat(stats.getTotal()).isEqualTo(20);
+        assertThat(stats.getRepeatedStatements(10)).hasSize(1);
+        assertThat(stats.getRepeatedStatements(10).values()).containsExactly(20);
+        assertThatThrownBy(() -> statementInspector.assertWithinLimits(stats, 30))
+                .isInstanceOf(StatementThresholdExceededException.class)
+                .hasMessageContaining("N+1");
+    }
+
+    @Test
+    public void batchedInsertIsNotRepeated(){
+        // flush 마다 insert 한번의 executeBatch -> 같은 insert가 12번이지만 N+1이 아니다.
+        StatementStats stats = statementInspector.capture(() -> {
+            for (int i = 0; i < 12; i++) {
+                memberRepository.save(new Member("inspectBatch" + i, 10));
+                memberRepository.save(new Member("inspectBatch" + i, 11));
+                em.flush();
+            }
+        });
+
+        assertThat(stats.getTotal()).isGreaterThanOrEqualTo(12);
+        assertThat(stats.getRepeatedStatements(10)).isEmpty();
+        statementInspector.assertWithinLimits(stats, 100);
+
+        // pooled 시퀀스 호출도 반복으로 보지 않는다.
+        StatementStats sequence = new StatementStats("sequence");
+        for (int i = 0; i < 20; i++) {
+            sequence.record("call next value for member_seq");
+            sequence.record("select nextval('member_seq')");
+        }
+        assertThat(sequence.getRepeatedStatements(10)).isEmpty();
+    }
+
+    @Test
+    public void fetchJoinWithinLimits(){
+        Team team = teamRepository.save(new Team("inspectTeam"));
+        memberRepository.save(new Member("inspect1", 10, team));
+        memberRepository.save(new Member("inspect2", 10, team));
+        em.flush();
+        em.clear();
+
+        StatementInspector.Captured<List<Member>> captured = statementInspector.capture("fetchJoin", () -> {
+            List<Member> members = memberRepository.findMemberFetchJoin();
+            members.forEach(m -> {
+                if (m.getTeam() != null) {
+                    m.getTeam().getName();
+                }
+            });
+            return members;
+        });
+
+        assertThat(captured.getStats().getTotal()).isEqualTo(1);
+        statementInspector.assertWithinLimits(captured.getStats(), 1);
+    }
+
+    @Test
+    public void statementMetrics(){
+        double before = meterRegistry.counter("jdbc.statements").count();
+        memberRepository.findListByUsername("inspect1");
+        assertThat(meterRegistry.counter("jdbc.statements").count()).isEqualTo(before + 1);
+    }
+
+    @Test
+    public void normalize(){
+        assertThat(StatementStats.normalize("select * from member where username = 'a''b' and age = 10"))
+                .isEqualTo("select * from member where username = ? and age = ?");
+    }
+}
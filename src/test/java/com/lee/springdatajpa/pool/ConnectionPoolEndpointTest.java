@@ -0,0 +1,33 @@
+package com.lee.springdatajpa.pool;
+
+import com.lee.springdatajpa.dto.ConnectionPoolStats;
+import com.lee.springdatajpa.repository.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ConnectionPoolEndpointTest {
+
+    @Autowired ConnectionPoolEndpoint connectionPoolEndpoint;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void pools(){
+        memberRepository.count();
+
+        Map<String, ConnectionPoolStats> pools = connectionPoolEndpoint.pools();
+
+        assertThat(pools).hasSize(1);
+        ConnectionPoolStats stats = pools.values().iterator().next();
+        assertThat(stats.getMaximumPoolSize()).isEqualTo(10);
+        assertThat(stats.getLeakDetectionThresholdMs()).isEqualTo(60000);
+        assertThat(stats.getTotal()).isGreaterThan(0);
+        // p6spy가 감싸고 있어도 hikaricp.connections.* 미터가 등록된다.
+        assertThat(stats.getAcquireCount()).isGreaterThan(0);
+    }
+}
@@ -1,14 +1,21 @@
 package com.lee.springdatajpa.repository;
 
+import com.lee.springdatajpa.dto.MemberCursor;
+import com.lee.springdatajpa.dto.MemberDto;
 import com.lee.springdatajpa.entity.Member;
 import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -19,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.*;
 class MemberJpaRepositoryTest {
 
     @Autowired MemberJpaRepository memberJpaRepository;
+    @PersistenceContext EntityManager em;
 
     @Test
     public void testMember(){
@@ -104,4 +112,43 @@ class MemberJpaRepositoryTest {
         int resultCount = memberJpaRepository.bulkAgePlus(20);
         assertThat(resultCount).isEqualTo(3);
     }
+
+    @Test
+    public void keysetPaging(){
+        memberJpaRepository.save(new Member("keyset1", 777));
+        memberJpaRepository.save(new Member("keyset2", 777));
+        memberJpaRepository.save(new Member("keyset3", 777));
+        memberJpaRepository.save(new Member("keyset3", 777));
+        memberJpaRepository.save(new Member("keyset4", 777));
+
+        int age = 777;
+        int limit = 2;
+
+        List<Member> page1 = memberJpaRepository.findByKeyset(age, null, limit);
+        List<Member> page2 = memberJpaRepository.findByKeyset(age, MemberCursor.of(page1.get(1)), limit);
+        List<Member> page3 = memberJpaRepository.findByKeyset(age, MemberCursor.of(page2.get(1)), limit);
+
+        assertThat(page1).extracting("username").containsExactly("keyset4", "keyset3");
+        assertThat(page2).extracting("username").containsExactly("keyset3", "keyset2");
+        assertThat(page3).extracting("username").containsExactly("keyset1");
+        assertThat(page2.get(0).getId()).isGreaterThan(page1.get(1).getId());
+    }
+
+    @Test
+    public void streamAll(){
+        memberJpaRepository.save(new Member("entityStream1", 10));
+        memberJpaRepository.save(new Member("entityStream2", 10));
+        memberJpaRepository.save(new Member("entityStream3", 10));
+        em.flush();
+        em.clear();
+
+        long count;
+        try (Stream<MemberDto> stream = memberJpaRepository.streamAll(2, MemberDto::new)) {
+            count = stream.filter(dto -> dto.getUsername().startsWith("entityStream")).count();
+        }
+
+        assertThat(count).isEqualTo(3);
+        // 읽은 엔티티는 바로 detach 되므로 영속성 컨텍스트가 비어있다.
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0);
+    }
 }
\ No newline at end of file
@@ -1,24 +1,65 @@
 package com.lee.springdatajpa.repository;
 
+import com.lee.springdatajpa.config.AsyncRepositoryConfig;
+import com.lee.springdatajpa.dto.CursorPage;
+import com.lee.springdatajpa.dto.MemberCursor;
 import com.lee.springdatajpa.dto.MemberDto;
 import com.lee.springdatajpa.entity.Member;
 import com.lee.springdatajpa.entity.Team;
+import com.lee.springdatajpa.entity.TeamStats;
+import com.lee.springdatajpa.inspection.StatementInspector;
+import com.lee.springdatajpa.repository.bulk.BulkUpdateOptions;
+import com.lee.springdatajpa.repository.bulk.BulkUpdateProgress;
+import com.lee.springdatajpa.repository.bulk.BulkUpdateResult;
+import com.lee.springdatajpa.repository.scan.MemberScanCollectors;
+import com.lee.springdatajpa.repository.scan.ParallelMemberScanner;
+import com.lee.springdatajpa.repository.scan.ParallelScanOptions;
 import org.assertj.core.api.Assertions;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.Rollback;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,7 +71,12 @@ class MemberRepositoryTest {
 
     @Autowired MemberRepository memberRepository;
     @Autowired TeamRepository teamRepository;
+    @Autowired TeamStatsRepository teamStatsRepository;
     @Autowired MemberQueryRepository memberQueryRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired ParallelMemberScanner parallelMemberScanner;
+    @Autowired StatementInspector statementInspector;
+    @Autowired @Qualifier(AsyncRepositoryConfig.REPOSITORY_EXECUTOR) AsyncTaskExecutor repositoryExecutor;
     @PersistenceContext EntityManager em;
 
     @Test
@@ -139,6 +185,26 @@ class MemberRepositoryTest {
         }
     }
 
+    @Test
+    public void inClauseParameterPadding(){
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        memberRepository.findByNames(Collections.singletonList("padding"));
+        long plansBefore = statistics.getQueryPlanCacheMissCount();
+
+        for (int size = 1; size <= 500; size++) {
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                names.add("padding" + i);
+            }
+            memberRepository.findByNames(names);
+        }
+
+        // 크기마다 플랜이 생기면 500개, padding 하면 2의 거듭제곱(2 ~ 512) 9개
+        long plans = statistics.getQueryPlanCacheMissCount() - plansBefore;
+        System.out.println("query plans for 500 IN sizes=" + plans);
+        assertThat(plans).isLessThanOrEqualTo(10);
+    }
+
     @Test
     public void returnType(){
         Member m1 = new Member("member1", 10);
@@ -292,4 +358,575 @@ class MemberRepositoryTest {
     public void callCustom(){
         List<Member> result = memberRepository.findMemberCustom();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void saveAllBatched(){
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            members.add(new Member("batch" + i, i));
+        }
+
+        long count = memberRepository.saveAllBatched(members, 100);
+
+        assertThat(count).isEqualTo(1000);
+        // batchSize 마다 clear 되므로 영속성 컨텍스트에 남아있지 않다.
+        assertThat(em.contains(members.get(0))).isFalse();
+        assertThat(em.contains(members.get(999))).isFalse();
+        assertThat(members).allMatch(m -> m.getId() != null);
+        assertThat(memberRepository.findById(members.get(999).getId())).isPresent();
+    }
+
+    @Test
+    public void keysetPaging(){
+        memberRepository.save(new Member("keyset1", 10));
+        memberRepository.save(new Member("keyset2", 10));
+        memberRepository.save(new Member("keyset2", 10));
+        memberRepository.save(new Member("keyset3", 10));
+        em.flush();
+
+        // 커서를 따라 끝까지 읽은 결과가 offset 정렬 결과와 같아야 한다.
+        List<Long> expected = memberRepository.findAll(Sort.by(Sort.Order.desc("username"), Sort.Order.asc("id")))
+                .stream().map(Member::getId).collect(Collectors.toList());
+
+        List<Long> keysetIds = new ArrayList<>();
+        MemberCursor cursor = null;
+        while (true) {
+            CursorPage<Member> page = memberRepository.findKeysetPage(cursor, 3);
+            page.getContent().forEach(m -> keysetIds.add(m.getId()));
+            if (!page.isHasNext()) {
+                break;
+            }
+            cursor = MemberCursor.decode(page.getNextCursor());
+        }
+
+        assertThat(keysetIds).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void keysetPagingWithNullUsername(){
+        memberRepository.save(new Member("keysetNull1", 10));
+        Member nullName1 = memberRepository.save(new Member(null, 10));
+        Member nullName2 = memberRepository.save(new Member(null, 10));
+        Member nullName3 = memberRepository.save(new Member(null, 10));
+        em.flush();
+
+        // null username은 토큰에 "null" 문자열이 아니라 null 그대로 담긴다.
+        assertThat(MemberCursor.decode(MemberCursor.of(nullName1).encode()).getUsername()).isNull();
+        assertThat(MemberCursor.decode(new MemberCursor("", 1L).encode()).getUsername()).isEmpty();
+
+        // 크기 2로 읽으면 null username 구간 중간에서 커서가 끊긴다. 빠지거나 반복되는 회원이 없어야 한다.
+        List<Long> keysetIds = new ArrayList<>();
+        MemberCursor cursor = null;
+        while (true) {
+            CursorPage<Member> page = memberRepository.findKeysetPage(cursor, 2);
+            page.getContent().forEach(m -> keysetIds.add(m.getId()));
+            if (!page.isHasNext()) {
+                break;
+            }
+            cursor = MemberCursor.decode(page.getNextCursor());
+        }
+
+        long total = memberRepository.count();
+        assertThat(keysetIds).hasSize((int) total).doesNotHaveDuplicates();
+        // null username 회원은 맨 뒤에 id 순서로 온다.
+        assertThat(keysetIds.subList(keysetIds.size() - 3, keysetIds.size()))
+                .containsExactly(nullName1.getId(), nullName2.getId(), nullName3.getId());
+
+        // 커밋되는 테스트이므로 username이 있다고 가정하는 다른 테스트를 위해 지운다.
+        memberRepository.deleteAll(Arrays.asList(nullName1, nullName2, nullName3));
+        em.flush();
+    }
+
+    @Test
+    public void pagingWithCachedCount(){
+        memberRepository.save(new Member("cached1", 10555));
+        memberRepository.save(new Member("cached2", 10555));
+        memberRepository.save(new Member("cached3", 10555));
+        memberRepository.save(new Member("cached4", 10555));
+
+        // 첫 페이지가 꽉 차지 않으면 count 쿼리(캐시)를 거치지 않으므로 꽉 찬 페이지로 확인한다.
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "username"));
+        Page<Member> page = memberRepository.findByAgeWithCachedCount(10555, pageRequest);
+
+        assertThat(page.getContent()).extracting("username").containsExactly("cached4", "cached3", "cached2");
+        assertThat(page.getTotalElements()).isEqualTo(4);
+
+        // save 하면 캐시가 비워져서 다시 센다.
+        memberRepository.save(new Member("cached5", 10555));
+        assertThat(memberRepository.findByAgeWithCachedCount(10555, pageRequest).getTotalElements()).isEqualTo(5);
+
+        // 빈 두번째 페이지는 count를 하므로 age 10556의 count(0)가 캐시된다.
+        assertThat(memberRepository.findByAgeWithCachedCount(10556, PageRequest.of(1, 3)).getTotalElements()).isZero();
+
+        // bulk update도 캐시를 비운다. 비우지 않으면 캐시된 0이 나온다.
+        memberRepository.bulkAgePlus(10555);
+        Page<Member> moved = memberRepository.findByAgeWithCachedCount(10556, pageRequest);
+        assertThat(moved.getContent()).hasSize(3);
+        assertThat(moved.getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    public void pageCountCache() throws Exception {
+        AtomicInteger counted = new AtomicInteger();
+        LongSupplier counter = () -> {
+            counted.incrementAndGet();
+            return 100L;
+        };
+        Map<String, Object> params = Collections.singletonMap("age", 10);
+
+        PageCountCache exact = new PageCountCache(Duration.ofMinutes(1), PageCountCache.Mode.EXACT, 100);
+        assertThat(exact.count("count", params, counter)).isEqualTo(100);
+        assertThat(exact.count("count", params, counter)).isEqualTo(100);
+        assertThat(counted.get()).isEqualTo(1);
+
+        // 파라미터가 다르면 따로 센다.
+        exact.count("count", Collections.singletonMap("age", 20), counter);
+        assertThat(counted.get()).isEqualTo(2);
+
+        // 파라미터 조합이 많아도 max-size 개까지만 남는다.
+        PageCountCache bounded = new PageCountCache(Duration.ofMinutes(1), PageCountCache.Mode.EXACT, 2);
+        for (int age = 0; age < 10; age++) {
+            bounded.count("count", Collections.singletonMap("age", age), counter);
+        }
+        assertThat(bounded.size()).isLessThanOrEqualTo(2);
+
+        // ESTIMATED는 처음엔 하한값을 바로 주고 백그라운드에서 센다.
+        PageCountCache estimated = new PageCountCache(Duration.ofMinutes(1), PageCountCache.Mode.ESTIMATED, 100);
+        assertThat(estimated.estimate("count", params, counter, 7)).isEqualTo(7);
+        for (int i = 0; i < 50 && estimated.estimate("count", params, counter, 7) != 100; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(estimated.estimate("count", params, counter, 7)).isEqualTo(100);
+        estimated.destroy();
+    }
+
+    @Test
+    public void pageCountCacheDropsCountStartedBeforeEvict() throws Exception {
+        Map<String, Object> params = Collections.singletonMap("age", 10);
+        AtomicInteger counted = new AtomicInteger();
+
+        // count 중에 지워지면 그 결과는 캐시하지 않는다.
+        PageCountCache exact = new PageCountCache(Duration.ofMinutes(1), PageCountCache.Mode.EXACT, 100);
+        assertThat(exact.count("count", params, () -> {
+            counted.incrementAndGet();
+            exact.evictAll();
+            return 100L;
+        })).isEqualTo(100);
+        exact.count("count", params, () -> {
+            counted.incrementAndGet();
+            return 101L;
+        });
+        assertThat(counted.get()).isEqualTo(2);
+
+        // 백그라운드 refresh가 끝나기 전에 지우면 refresh 결과(지우기 전 값)는 버린다.
+        PageCountCache estimated = new PageCountCache(Duration.ofMinutes(1), PageCountCache.Mode.ESTIMATED, 100);
+        CountDownLatch evicted = new CountDownLatch(1);
+        CountDownLatch refreshed = new CountDownLatch(1);
+        estimated.estimate("count", params, () -> {
+            try {
+                evicted.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            refreshed.countDown();
+            return 100L;
+        }, 7);
+        estimated.evict("age", Collections.singletonList(10), false);
+        evicted.countDown();
+        assertThat(refreshed.await(1, TimeUnit.SECONDS)).isTrue();
+        // refresh 스레드의 put(을 하지 않는 것)까지 끝나도록 잠깐 기다린다.
+        Thread.sleep(50);
+        assertThat(estimated.size()).isZero();
+        estimated.destroy();
+    }
+
+    @Test
+    public void streamMemberDto(){
+        Team team = new Team("streamTeam");
+        teamRepository.save(team);
+        memberRepository.save(new Member("dtoStream1", 10, team));
+        memberRepository.save(new Member("dtoStream2", 10, team));
+        em.flush();
+        em.clear();
+
+        List<MemberDto> result;
+        try (Stream<MemberDto> stream = memberRepository.streamMemberDto()) {
+            result = stream.filter(dto -> dto.getUsername().startsWith("dtoStream")).collect(Collectors.toList());
+        }
+
+        assertThat(result).extracting("teamName").containsOnly("streamTeam");
+        assertThat(result).hasSize(2);
+        // DTO로 읽었으므로 영속성 컨텍스트에 엔티티가 남지 않는다.
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0);
+    }
+
+    // 2차 캐시는 트랜잭션이 끝나야 다른 트랜잭션에서 보이므로 테스트 트랜잭션 없이 각각 커밋한다. (만든 행은 마지막에 지운다)
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void secondLevelCache(){
+        Team team = teamRepository.save(new Team("cachedTeam"));
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        teamRepository.findById(team.getId());
+        long hitCount = statistics.getDomainDataRegionStatistics("team").getHitCount();
+
+        // 새 트랜잭션(새 영속성 컨텍스트)에서도 DB 대신 2차 캐시에서 가져온다.
+        Team findTeam = teamRepository.findById(team.getId()).get();
+        assertThat(findTeam.getName()).isEqualTo("cachedTeam");
+        assertThat(statistics.getDomainDataRegionStatistics("team").getHitCount()).isEqualTo(hitCount + 1);
+
+        teamRepository.deleteById(team.getId());
+    }
+
+    // JPQL 벌크 수정은 Hibernate가 Member 리전과 Member 테이블을 쓰는 쿼리 캐시를 무효화한다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void queryCacheEvictedOnBulkUpdate(){
+        Member saved = memberRepository.save(new Member("queryCache1", 10_000));
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        // 쿼리 캐시 리전은 처음 쓸 때 만들어지므로 조회한 뒤에 통계를 가져온다.
+        memberRepository.findMemberByUsername("queryCache1");
+        CacheRegionStatistics regionStatistics = statistics.getQueryRegionStatistics(MemberRepository.USERNAME_QUERY_CACHE_REGION);
+        long hitCount = regionStatistics.getHitCount();
+        memberRepository.findMemberByUsername("queryCache1");
+        assertThat(regionStatistics.getHitCount()).isEqualTo(hitCount + 1);
+        assertThat(memberRepository.findById(saved.getId()).get().getAge()).isEqualTo(10_000);
+
+        // bulk update 후에는 캐시를 쓰지 않고 바뀐 값을 다시 읽는다.
+        memberRepository.bulkAgePlus(10_000);
+        long missCount = regionStatistics.getMissCount();
+        Member member = memberRepository.findMemberByUsername("queryCache1");
+        assertThat(regionStatistics.getMissCount()).isEqualTo(missCount + 1);
+        assertThat(member.getAge()).isEqualTo(10_001);
+        assertThat(memberRepository.findById(saved.getId()).get().getAge()).isEqualTo(10_001);
+
+        memberRepository.deleteById(saved.getId());
+    }
+
+    @Test
+    public void batchFetchTeam(){
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            teams.add(new Team("batchTeam" + i));
+        }
+        teamRepository.saveAll(teams);
+
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            members.add(new Member("batchFetch" + i, 20_000, teams.get(i % teams.size())));
+        }
+        memberRepository.saveAllBatched(members, 500);
+        em.getEntityManagerFactory().getCache().evict(Team.class);
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        long before = statistics.getPrepareStatementCount();
+
+        Slice<Member> page = memberRepository.findSliceByAge(20_000, PageRequest.of(0, 1000));
+        for (Member member : page) {
+            member.getTeam().getName();
+        }
+
+        // 페이지 쿼리 1번 + 팀 250개를 200개씩 IN 쿼리로 (N+1 이면 251번)
+        assertThat(page.getContent()).hasSize(1000);
+        assertThat(statistics.getPrepareStatementCount() - before).isLessThanOrEqualTo(1 + 2);
+    }
+
+    @Test
+    public void batchFetchTeamMembers(){
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            teams.add(new Team("batchMembersTeam" + i));
+        }
+        teamRepository.saveAll(teams);
+
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            members.add(new Member("batchMembers" + i, 10, teams.get(i % teams.size())));
+        }
+        memberRepository.saveAllBatched(members, 500);
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        List<Long> teamIds = teams.stream().map(Team::getId).collect(Collectors.toList());
+        long before = statistics.getPrepareStatementCount();
+
+        List<Team> findTeams = teamRepository.findAllById(teamIds);
+        int memberCount = 0;
+        for (Team team : findTeams) {
+            memberCount += team.getMembers().size();
+        }
+
+        // 팀 조회 1번 + members 컬렉션 100개를 50개씩 (N+1 이면 101번)
+        assertThat(memberCount).isEqualTo(1000);
+        assertThat(statistics.getPrepareStatementCount() - before).isLessThanOrEqualTo(1 + 2);
+    }
+
+    @Test
+    public void findMemberDtoPage(){
+        Team team = teamRepository.save(new Team("dtoPageTeam"));
+        memberRepository.save(new Member("dtoPage1", 10, team));
+        memberRepository.save(new Member("dtoPage2", 10));
+        em.flush();
+        em.clear();
+
+        Page<MemberDto> page = memberRepository.findMemberDtoPage(
+                PageRequest.of(0, 1000, Sort.by(Sort.Direction.DESC, "id")));
+
+        assertThat(page.getContent())
+                .filteredOn(dto -> dto.getUsername().startsWith("dtoPage"))
+                .extracting("username", "teamName")
+                .containsExactly(tuple("dtoPage2", null), tuple("dtoPage1", "dtoPageTeam"));
+        // 엔티티를 만들지 않으므로 영속성 컨텍스트가 비어있다.
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0);
+
+        // 엔티티로 만든 DTO도 팀 이름을 채운다.
+        Member member = memberRepository.findMemberByUsername("dtoPage1");
+        assertThat(new MemberDto(member).getTeamName()).isEqualTo("dtoPageTeam");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void bulkAgePlusInChunks(){
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            members.add(new Member("chunked" + i, 30_000 + i));
+        }
+        memberRepository.saveAllBatched(members, 100);
+        Member untouched = memberRepository.save(new Member("chunkedUntouched", 10));
+
+        // 읽기/쓰기 트랜잭션 안에서는 청크가 호출한 트랜잭션의 락을 기다릴 수 있으므로 거부한다.
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status ->
+                assertThatThrownBy(() -> memberRepository.bulkAgePlusInChunks(30_000, BulkUpdateOptions.chunkSize(500)))
+                        .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                        .hasCauseInstanceOf(IllegalStateException.class));
+
+        List<BulkUpdateProgress> progress = new ArrayList<>();
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            Member affected = memberRepository.findById(members.get(0).getId()).get();
+            Member notAffected = memberRepository.findById(untouched.getId()).get();
+
+            BulkUpdateResult result = memberRepository.bulkAgePlusInChunks(30_000,
+                    BulkUpdateOptions.chunkSize(500).withListener(progress::add));
+
+            assertThat(result.getUpdated()).isEqualTo(10);
+            assertThat(result.getChunks()).isEqualTo(progress.size());
+            // 영속성 컨텍스트 전체가 아니라 변경된 엔티티만 detach 된다.
+            assertThat(em.contains(affected)).isFalse();
+            assertThat(em.contains(notAffected)).isTrue();
+            assertThat(memberRepository.findById(affected.getId()).get().getAge()).isEqualTo(30_001);
+        });
+
+        assertThat(progress.get(progress.size() - 1).getTotalUpdated()).isEqualTo(10);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void statelessInsertScanUpdate(){
+        Team team = teamRepository.save(new Team("statelessTeam"));
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            members.add(new Member("stateless" + i, 35_000 + i, team));
+        }
+
+        assertThat(memberRepository.insertAllStateless(members, 4)).isEqualTo(10);
+        assertThat(members).allSatisfy(member -> {
+            assertThat(member.getId()).isNotNull();
+            assertThat(member.getVersion()).isEqualTo(0L);
+            assertThat(member.getCreatedDate()).isNotNull();
+        });
+        // 넘긴 회원으로 팀 통계를 증감한다.
+        TeamStats inserted = teamStatsRepository.findById(team.getId()).get();
+        assertThat(inserted.getMemberCount()).isEqualTo(10);
+        assertThat(inserted.getMinAge()).isEqualTo(35_000);
+        assertThat(inserted.getMaxAge()).isEqualTo(35_009);
+
+        // 읽은 회원은 영속성 컨텍스트에 남지 않는다. team은 fetch join 되어 있다.
+        List<Member> scanned = new ArrayList<>();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            memberRepository.scanAllStateless(100, member -> {
+                if (member.getUsername().startsWith("stateless")) {
+                    assertThat(em.contains(member)).isFalse();
+                    scanned.add(member);
+                }
+            });
+        });
+        assertThat(scanned).hasSize(10);
+        assertThat(scanned.get(0).getTeam().getName()).isEqualTo("statelessTeam");
+
+        // 2차 캐시에 올려 둔다. 수정하지 않은 회원은 캐시에 남아야 한다.
+        Member other = memberRepository.save(new Member("statelessOther", 35_100, team));
+        memberRepository.findById(members.get(0).getId());
+        memberRepository.findById(other.getId());
+        Cache cache = em.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        assertThat(cache.containsEntity(Member.class, members.get(0).getId())).isTrue();
+
+        scanned.forEach(member -> member.changeAge(member.getAge() + 1));
+        assertThat(memberRepository.updateAllStateless(scanned, 4)).isEqualTo(10);
+
+        assertThat(cache.containsEntity(Member.class, members.get(0).getId())).isFalse();
+        assertThat(cache.containsEntity(Member.class, other.getId())).isTrue();
+        Member updated = memberRepository.findById(members.get(0).getId()).get();
+        assertThat(updated.getAge()).isEqualTo(35_001);
+        assertThat(updated.getVersion()).isEqualTo(1L);
+        TeamStats stats = teamStatsRepository.findById(team.getId()).get();
+        assertThat(stats.getMemberCount()).isEqualTo(11);
+        assertThat(stats.getMinAge()).isEqualTo(35_001);
+        assertThat(stats.getMaxAge()).isEqualTo(35_100);
+
+        memberRepository.deleteById(other.getId());
+        members.forEach(member -> memberRepository.deleteById(member.getId()));
+        teamRepository.deleteById(team.getId());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void parallelScan(){
+        Team team = teamRepository.save(new Team("parallelScanTeam"));
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            members.add(new Member("parallelScan" + i, i % 50, i % 2 == 0 ? team : null));
+        }
+        memberRepository.saveAllBatched(members, 100);
+
+        Map<Long, Map<Integer, Long>> parallel = parallelMemberScanner.scan(MemberScanCollectors.teamAgeHistogram(10),
+                ParallelScanOptions.partitions(7).withFetchSize(50));
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Map<Long, Map<Integer, Long>> serial = transactionTemplate.execute(status ->
+                memberRepository.findAll().stream().collect(MemberScanCollectors.teamAgeHistogram(10)));
+
+        assertThat(parallel).isEqualTo(serial);
+        // 팀 회원 150명, 나이 0~49 -> 10살 구간마다 30명
+        assertThat(parallel.get(team.getId())).containsOnlyKeys(0, 10, 20, 30, 40);
+        assertThat(parallel.get(team.getId()).values()).containsOnly(30L);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void optimisticLockRetry() throws Exception {
+        Member member = memberRepository.save(new Member("optimistic1", 25_000));
+        assertThat(member.getVersion()).isEqualTo(0L);
+
+        int writers = 4;
+        int updatesPerWriter = 5;
+        AtomicInteger succeeded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < updatesPerWriter; j++) {
+                    try {
+                        memberRepository.addAgeOptimistic("optimistic1", 1);
+                        succeeded.incrementAndGet();
+                    } catch (ObjectOptimisticLockingFailureException e) {
+                        // 재시도 횟수를 다 쓴 경우. 반영되지 않았으므로 세지 않는다.
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // 잃어버린 수정 없이 성공한 만큼만 반영된다.
+        Member result = memberRepository.findById(member.getId()).get();
+        assertThat(succeeded.get()).isGreaterThan(0);
+        assertThat(result.getAge()).isEqualTo(25_000 + succeeded.get());
+        assertThat(result.getVersion()).isEqualTo((long) succeeded.get());
+
+        memberRepository.deleteById(member.getId());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void optimisticLockConflict(){
+        Member member = memberRepository.save(new Member("optimistic2", 25_100));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        TransactionTemplate otherTransaction = new TransactionTemplate(transactionManager);
+        otherTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // 먼저 읽어둔 엔티티(version 0)로 수정하는 사이 다른 트랜잭션이 먼저 커밋하면 충돌
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            Member stale = memberRepository.findById(member.getId()).get();
+            otherTransaction.executeWithoutResult(other -> memberRepository.addAgePessimistic("optimistic2", 1));
+            stale.changeAge(0);
+            memberRepository.saveAndFlush(stale);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        memberRepository.deleteById(member.getId());
+    }
+
+    // Team.members가 바뀌어도 Team version은 그대로이므로, 같은 팀에 동시에 가입하는 두 트랜잭션이 둘 다 커밋된다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void concurrentJoinSameTeam() throws Exception {
+        Team team = teamRepository.save(new Team("joinTeam"));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CyclicBarrier bothJoined = new CyclicBarrier(2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            String username = "join" + i;
+            futures.add(executor.submit(() -> transactionTemplate.execute(status -> {
+                Team managed = teamRepository.findById(team.getId()).get();
+                Member member = memberRepository.save(new Member(username, 10, managed));
+                // 둘 다 같은 version의 팀에 가입한 뒤에 커밋한다.
+                try {
+                    bothJoined.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return member.getId();
+            })));
+        }
+        List<Long> memberIds = new ArrayList<>();
+        for (Future<Long> future : futures) {
+            memberIds.add(future.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        Team result = teamRepository.findById(team.getId()).get();
+        assertThat(result.getVersion()).isEqualTo(team.getVersion());
+        assertThat(memberRepository.findAllById(memberIds)).hasSize(2);
+
+        memberIds.forEach(memberRepository::deleteById);
+        teamRepository.deleteById(team.getId());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findMemberDtoAsync() throws Exception {
+        Team team = teamRepository.save(new Team("asyncTeam"));
+        Member member = memberRepository.save(new Member("async1", 25_200, team));
+        ThreadPoolExecutor executor = ((ThreadPoolTaskExecutor) repositoryExecutor).getThreadPoolExecutor();
+        long submitted = executor.getTaskCount();
+
+        // 쿼리는 repositoryExecutor 스레드에서 실행되므로 호출한 스레드에서는 statement가 하나도 실행되지 않는다.
+        StatementInspector.Captured<MemberDto> captured = statementInspector.capture("async", () -> {
+            try {
+                return memberRepository.findMemberDtoAsync(member.getId()).get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        MemberDto dto = captured.getResult();
+        assertThat(dto.getUsername()).isEqualTo("async1");
+        assertThat(dto.getTeamName()).isEqualTo("asyncTeam");
+        assertThat(captured.getStats().getTotal()).isZero();
+        assertThat(executor.getTaskCount()).isEqualTo(submitted + 1);
+
+        assertThat(memberRepository.findMemberDtoAsync(-1L).get(5, TimeUnit.SECONDS)).isNull();
+
+        Page<MemberDto> page = memberRepository.findMemberDtoPageAsync(PageRequest.of(0, 3)).get(5, TimeUnit.SECONDS);
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(executor.getTaskCount()).isEqualTo(submitted + 3);
+
+        memberRepository.deleteById(member.getId());
+        teamRepository.deleteById(team.getId());
+    }
+}
@@ -0,0 +1,94 @@
+package com.lee.springdatajpa.service;
+
+import com.lee.springdatajpa.dto.ConnectionPoolStats;
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.entity.Team;
+import com.lee.springdatajpa.pool.ConnectionPoolEndpoint;
+import com.lee.springdatajpa.repository.MemberFetchPlan;
+import com.lee.springdatajpa.repository.MemberRepository;
+import com.lee.springdatajpa.repository.TeamRepository;
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// open-in-view: false 에서 트랜잭션 밖 지연 로딩과 렌더링 중 커넥션 점유 확인 (테스트 트랜잭션 없음)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(MemberQueryServiceTest.ActiveConnectionsAtRender.class)
+class MemberQueryServiceTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+
+    // 응답 본문을 쓰기 직전(컨트롤러가 끝난 뒤)에 사용 중인 커넥션 수를 기록한다.
+    @ControllerAdvice
+    static class ActiveConnectionsAtRender implements ResponseBodyAdvice<Object> {
+        static final AtomicInteger ACTIVE = new AtomicInteger(-1);
+
+        private final ConnectionPoolEndpoint connectionPoolEndpoint;
+
+        ActiveConnectionsAtRender(ConnectionPoolEndpoint connectionPoolEndpoint) {
+            this.connectionPoolEndpoint = connectionPoolEndpoint;
+        }
+
+        @Override
+        public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+            return true;
+        }
+
+        @Override
+        public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                      Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                      ServerHttpRequest request, ServerHttpResponse response) {
+            ACTIVE.set(connectionPoolEndpoint.pools().values().stream().mapToInt(ConnectionPoolStats::getActive).sum());
+            return body;
+        }
+    }
+
+    @Test
+    public void lazyAccessOutsideTransaction(){
+        Team team = teamRepository.save(new Team("fetchPlanTeam"));
+        Member member = memberRepository.save(new Member("fetchPlan1", 10, team));
+
+        Member basic = memberRepository.findById(member.getId(), MemberFetchPlan.MEMBER).get();
+        assertThatThrownBy(() -> basic.getTeam().getName())
+                .isInstanceOf(LazyInitializationException.class);
+
+        Member withTeam = memberRepository.findById(member.getId(), MemberFetchPlan.MEMBER_WITH_TEAM).get();
+        assertThat(withTeam.getTeam().getName()).isEqualTo("fetchPlanTeam");
+    }
+
+    @Test
+    public void connectionReleasedBeforeRendering() throws Exception {
+        Team team = teamRepository.save(new Team("renderTeam"));
+        Member member = memberRepository.save(new Member("render1", 10, team));
+
+        mockMvc.perform(get("/members/v3/{id}", member.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teamName").value("renderTeam"));
+        assertThat(ActiveConnectionsAtRender.ACTIVE.get()).isZero();
+
+        mockMvc.perform(get("/members").param("size", "5"))
+                .andExpect(status().isOk());
+        assertThat(ActiveConnectionsAtRender.ACTIVE.get()).isZero();
+    }
+}
@@ -0,0 +1,149 @@
+package com.lee.springdatajpa.stats;
+
+import com.lee.springdatajpa.entity.Member;
+import com.lee.springdatajpa.entity.Team;
+import com.lee.springdatajpa.entity.TeamStats;
+import com.lee.springdatajpa.repository.MemberRepository;
+import com.lee.springdatajpa.repository.TeamRepository;
+import com.lee.springdatajpa.repository.TeamStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.*;
+
+// 증감은 커밋 직전에 반영되므로 테스트 트랜잭션 없이 TransactionTemplate으로 커밋한다.
+@SpringBootTest
+class TeamStatsTrackerTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired TeamStatsRepository teamStatsRepository;
+    @Autowired TeamStatsTracker teamStatsTracker;
+    @Autowired PlatformTransactionManager transactionManager;
+    @PersistenceContext EntityManager em;
+
+    @Test
+    public void incrementalStats(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Team teamA = teamRepository.save(new Team("statsTeamA"));
+        Team teamB = teamRepository.save(new Team("statsTeamB"));
+        assertThat(stats(teamA).getMemberCount()).isZero();
+
+        Member member1 = tx.execute(status -> {
+            Team team = teamRepository.findById(teamA.getId()).get();
+            memberRepository.saveAll(Arrays.asList(
+                    new Member("stats1", 10, team), new Member("stats2", 20, team), new Member("stats3", 30, team)));
+            return memberRepository.findListByUsername("stats1").get(0);
+        });
+        assertStats(stats(teamA), 3, 10, 30, 20.0);
+
+        // 최소 나이인 회원이 다른 팀으로 가면 그 팀만 다시 집계
+        tx.executeWithoutResult(status ->
+                memberRepository.findById(member1.getId()).get().changeTeam(teamRepository.findById(teamB.getId()).get()));
+        assertStats(stats(teamA), 2, 20, 30, 25.0);
+        assertStats(stats(teamB), 1, 10, 10, 10.0);
+
+        tx.executeWithoutResult(status -> {
+            memberRepository.findListByUsername("stats3").get(0).changeAge(40);
+            memberRepository.delete(memberRepository.findListByUsername("stats2").get(0));
+        });
+        assertStats(stats(teamA), 1, 40, 40, 40.0);
+
+        tx.executeWithoutResult(status -> memberRepository.delete(memberRepository.findListByUsername("stats3").get(0)));
+        TeamStats empty = stats(teamA);
+        assertThat(empty.getMemberCount()).isZero();
+        assertThat(empty.getMinAge()).isNull();
+        assertThat(empty.getAverageAge()).isNull();
+    }
+
+    @Test
+    public void rollbackDoesNotChangeStats(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Team team = teamRepository.save(new Team("statsRollback"));
+
+        tx.executeWithoutResult(status -> {
+            memberRepository.save(new Member("statsRollback1", 10, teamRepository.findById(team.getId()).get()));
+            status.setRollbackOnly();
+        });
+
+        assertThat(stats(team).getMemberCount()).isZero();
+    }
+
+    @Test
+    public void rebuildAfterBulkUpdate(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Team team = teamRepository.save(new Team("statsBulk"));
+        tx.executeWithoutResult(status -> {
+            Team managed = teamRepository.findById(team.getId()).get();
+            memberRepository.saveAll(Arrays.asList(
+                    new Member("statsBulk1", 40_000, managed), new Member("statsBulk2", 40_010, managed)));
+        });
+
+        // 엔티티 이벤트를 거치지 않지만 TeamStatsRebuildAspect가 나이가 바뀐 팀을 다시 집계한다.
+        memberRepository.bulkAgePlus(40_000);
+
+        assertStats(stats(team), 2, 40_001, 40_011, 40_006.0);
+        assertThat(teamStatsTracker.rebuild()).isGreaterThanOrEqualTo(1);
+        assertStats(stats(team), 2, 40_001, 40_011, 40_006.0);
+    }
+
+    @Test
+    public void rebuildOnlyAgedTeams(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Team aged = teamRepository.save(new Team("statsAged"));
+        Team untouched = teamRepository.save(new Team("statsUntouched"));
+        tx.executeWithoutResult(status -> {
+            memberRepository.save(new Member("statsAged1", 41_000, teamRepository.findById(aged.getId()).get()));
+            memberRepository.save(new Member("statsUntouched1", 10, teamRepository.findById(untouched.getId()).get()));
+        });
+        // 증감이 어긋난 팀을 만들어 둔다.
+        tx.executeWithoutResult(status -> em.createQuery("update TeamStats s set s.memberCount = 99 where s.teamId = :teamId")
+                .setParameter("teamId", untouched.getId())
+                .executeUpdate());
+
+        memberRepository.bulkAgePlus(41_000);
+
+        // 나이가 바뀐 회원의 팀만 다시 집계하므로 다른 팀은 그대로다.
+        assertStats(stats(aged), 1, 41_001, 41_001, 41_001.0);
+        assertThat(stats(untouched).getMemberCount()).isEqualTo(99);
+
+        assertThat(teamStatsTracker.rebuild(Arrays.asList(untouched.getId(), aged.getId(), aged.getId()))).isEqualTo(2);
+        assertStats(stats(untouched), 1, 10, 10, 10.0);
+    }
+
+    @Test
+    public void rebuildCreatesMissingStats(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Team team = teamRepository.save(new Team("statsMissing"));
+        tx.executeWithoutResult(status -> {
+            memberRepository.save(new Member("statsMissing1", 30, teamRepository.findById(team.getId()).get()));
+            teamStatsRepository.deleteById(team.getId());
+        });
+
+        // 행이 없는 팀은 증감하지 않고 건너뛴다.
+        tx.executeWithoutResult(status -> memberRepository.save(new Member("statsMissing2", 50, teamRepository.findById(team.getId()).get())));
+        assertThat(teamStatsRepository.findById(team.getId())).isEmpty();
+
+        teamStatsTracker.rebuild(Collections.singletonList(team.getId()));
+        assertStats(stats(team), 2, 30, 50, 40.0);
+    }
+
+    private TeamStats stats(Team team) {
+        return teamStatsRepository.findById(team.getId()).get();
+    }
+
+    private void assertStats(TeamStats stats, long count, int min, int max, double average) {
+        assertThat(stats.getMemberCount()).isEqualTo(count);
+        assertThat(stats.getMinAge()).isEqualTo(min);
+        assertThat(stats.getMaxAge()).isEqualTo(max);
+        assertThat(stats.getAverageAge()).isEqualTo(average);
+    }
+}